@@ -8,7 +8,10 @@ import com.google.common.hash.Funnel;
 import com.google.common.hash.PrimitiveSink;
 import examples.Video;
 import examples.VideoApi;
+import examples.VideoPage;
 import feign.Feign;
+import feign.Headers;
+import feign.Param;
 import feign.RequestLine;
 import feign.Response;
 import feign.jackson.JacksonDecoder;
@@ -23,6 +26,7 @@ public class VideoApiClient {
 
   private final VideoApi api;
   private final VideoMeta metaApi;
+  private final VideoPatch patchApi;
   private final ObjectMapper mapper;
   /**
    *
@@ -41,6 +45,13 @@ public class VideoApiClient {
 
     this.metaApi = Feign.builder()
       .target(VideoMeta.class, baseUri);
+
+    this.patchApi = Feign.builder()
+      .decode404()
+      .decoder(new JacksonDecoder(mapper))
+      .encoder(new JacksonEncoder(mapper))
+      .errorDecoder(new VideoApiErrorDecoder())
+      .target(VideoPatch.class, baseUri);
   }
 
   /**
@@ -52,6 +63,27 @@ public class VideoApiClient {
     return api.get(videoId);
   }
 
+  /**
+   *
+   * @param userId the target {@link Video#getUserId()}
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, or null for the server's default
+   * @return a page of the user's videos, most recently added first
+   */
+  public VideoPage getByUser(String userId, String cursor, Integer limit) {
+    return api.getByUser(userId, cursor, limit);
+  }
+
+  /**
+   *
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, or null for the server's default
+   * @return a page of the most recently added videos, most recent first
+   */
+  public VideoPage getLatest(String cursor, Integer limit) {
+    return api.getLatest(cursor, limit);
+  }
+
   /**
    * @param video the {@link Video} to create
    * @return the created {@link Video}
@@ -68,6 +100,17 @@ public class VideoApiClient {
     return api.update(video);
   }
 
+  /**
+   * Only the non-null fields of the patch are changed.
+   *
+   * @param videoId the target {@link Video#getVideoId()}
+   * @param patch the fields to change
+   * @return the patched {@link Video}, or null if there is no such video
+   */
+  public Video patch(String videoId, Video patch) {
+    return patchApi.patch(videoId, patch);
+  }
+
   /**
    * @return a {@link BloomFilter} of known {@link Video#getVideoId()}s, or null if not yet available
    */
@@ -115,4 +158,16 @@ public class VideoApiClient {
     @RequestLine("POST /bloomFilter")
     Response updateBloomFilter();
   }
+
+  /**
+   * Interface for PATCH requests; to be targeted by {@link Feign.Builder#target(Class, String)}.
+   * Feign's default client ({@link java.net.HttpURLConnection}) can't send PATCH, so the request is
+   * a POST that the endpoint overrides.
+   */
+  public interface VideoPatch {
+
+    @RequestLine("POST /{videoId}")
+    @Headers({"X-HTTP-Method-Override: PATCH", "Content-Type: application/json"})
+    Video patch(@Param("videoId") String videoId, Video patch);
+  }
 }
@@ -0,0 +1,268 @@
+package examples;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of {@link Video}s in front of another {@link VideoDao}.
+ *
+ * The cache is bounded and configured by a {@link CaffeineSpec}, e.g.
+ * "maximumSize=100000,expireAfterWrite=10m". Size (or weight) bounded caches evict with Caffeine's
+ * Window TinyLFU policy, which only admits a new video if it is requested more often than the
+ * video it would evict, so a burst of one-off lookups doesn't flush the popular videos. With
+ * "maximumWeight", each video weighs roughly its size in bytes.
+ *
+ * Saving or patching a video invalidates its entry once the write completes (whether or not it succeeded), so
+ * the next read goes to the delegate. A lookup that started before the invalidation doesn't cache
+ * what it read, since it may predate the write. Lookups that find no video are not cached. Cached
+ * videos are shared between callers and must not be modified.
+ */
+public class CachingVideoDao extends ForwardingVideoDao {
+
+  /**
+   * Number of invalidation counters, a power of 2; video ids share counters, so an invalidation may
+   * also keep a concurrent lookup of another video from being cached.
+   */
+  static final int VERSION_STRIPES = 1024;
+  private final Cache<UUID, Video> cache;
+  private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+  /**
+   *
+   * @param delegate the dao to read through to
+   * @param spec the cache configuration, see {@link CaffeineSpec}
+   */
+  public CachingVideoDao(VideoDao delegate, String spec) {
+    super(delegate);
+    Caffeine<Object, Object> builder = Caffeine.from(spec).recordStats();
+    if (spec.contains("maximumWeight")) {
+      builder.weigher((UUID videoId, Video video) -> weight(video));
+    }
+    this.cache = builder.build();
+  }
+
+  /**
+   * Also registers gauges of the cache's hits, misses, hit rate, evictions and size.
+   *
+   * @param delegate the dao to read through to
+   * @param spec the cache configuration, see {@link CaffeineSpec}
+   * @param metrics the registry for the gauges
+   * @param name prefix for the gauge names
+   */
+  public CachingVideoDao(VideoDao delegate, String spec, MetricRegistry metrics, String name) {
+    this(delegate, spec);
+    metrics.register(MetricRegistry.name(name, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+    metrics.register(MetricRegistry.name(name, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+    metrics.register(MetricRegistry.name(name, "hitRate"), (Gauge<Double>) () -> cache.stats().hitRate());
+    metrics.register(MetricRegistry.name(name, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+    metrics.register(MetricRegistry.name(name, "size"), (Gauge<Long>) cache::estimatedSize);
+  }
+
+  /**
+   *
+   * @return a snapshot of the cache's statistics
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  @Override
+  public Video retrieve(UUID videoId) {
+    // concurrent misses for the same video wait for a single lookup, and so does an invalidation
+    return cache.get(videoId, delegate()::retrieve);
+  }
+
+  @Override
+  public CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    Video cached = cache.getIfPresent(videoId);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    long version = version(videoId);
+    return delegate().retrieveAsync(videoId).thenApply(video -> {
+      if (video != null) {
+        put(videoId, video, version);
+      }
+      return video;
+    });
+  }
+
+  /**
+   * Only the ids that aren't cached are passed to the delegate.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @return the matching {@link Video}s by id, in the order of the ids; ids without a video are omitted
+   */
+  @Override
+  public Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    Set<UUID> distinct = new LinkedHashSet<>(videoIds);
+    Map<UUID, Video> cached = cache.getAllPresent(distinct);
+    List<UUID> misses = new ArrayList<>();
+    distinct.stream().filter(videoId -> !cached.containsKey(videoId)).forEach(misses::add);
+    Map<UUID, Long> versions = versions(misses);
+    Map<UUID, Video> loaded = misses.isEmpty() ? Collections.emptyMap() : delegate().retrieveAll(misses);
+    loaded.forEach((videoId, video) -> put(videoId, video, versions.get(videoId)));
+    Map<UUID, Video> videos = new LinkedHashMap<>();
+    for (UUID videoId : distinct) {
+      Video video = cached.getOrDefault(videoId, loaded.get(videoId));
+      if (video != null) {
+        videos.put(videoId, video);
+      }
+    }
+    return videos;
+  }
+
+  /**
+   * Cached videos are consumed first, then the rest as the delegate retrieves them.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @param consumer receives each matching {@link Video}
+   */
+  @Override
+  public void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    Set<UUID> distinct = new LinkedHashSet<>(videoIds);
+    Map<UUID, Video> cached = cache.getAllPresent(distinct);
+    cached.values().forEach(consumer);
+    List<UUID> misses = new ArrayList<>();
+    distinct.stream().filter(videoId -> !cached.containsKey(videoId)).forEach(misses::add);
+    if (!misses.isEmpty()) {
+      Map<UUID, Long> versions = versions(misses);
+      delegate().retrieveAll(misses, video -> {
+        put(video.getVideoId(), video, versions.get(video.getVideoId()));
+        consumer.accept(video);
+      });
+    }
+  }
+
+  @Override
+  public Video save(Video video) {
+    try {
+      return delegate().save(video);
+    } finally {
+      invalidate(video);
+    }
+  }
+
+  @Override
+  public Video patch(Video patch) {
+    try {
+      return delegate().patch(patch);
+    } finally {
+      invalidate(patch);
+    }
+  }
+
+  @Override
+  public Collection<Video> save(Collection<Video> videos) {
+    try {
+      return delegate().save(videos);
+    } finally {
+      videos.forEach(this::invalidate);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Video> saveAsync(Video video) {
+    return delegate().saveAsync(video)
+      .whenComplete((saved, error) -> invalidate(video));
+  }
+
+  @Override
+  public CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
+    return delegate().saveAsync(videos)
+      .whenComplete((saved, error) -> videos.forEach(this::invalidate));
+  }
+
+  @Override
+  public CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    return delegate().saveEach(videos)
+      .whenComplete((result, error) -> videos.forEach(this::invalidate));
+  }
+
+  /**
+   *
+   * @param video a video that may have changed
+   */
+  private void invalidate(Video video) {
+    // the delegate assigns ids to new videos, which can't be cached yet
+    if (video.getVideoId() != null) {
+      // before the entry is removed, so a lookup that races the removal can't put it back, see put
+      versions.incrementAndGet(stripe(video.getVideoId()));
+      cache.invalidate(video.getVideoId());
+    }
+  }
+
+  /**
+   * Cache a video read by a lookup, unless it was invalidated since the lookup started.
+   *
+   * @param videoId the id that was looked up
+   * @param video the video read
+   * @param version the {@link #version(UUID)} of the id when the lookup started
+   */
+  private void put(UUID videoId, Video video, Long version) {
+    // atomic with respect to invalidate's removal of the entry
+    cache.asMap().compute(videoId, (id, cached) -> version != null && versions.get(stripe(id)) == version ? video : cached);
+  }
+
+  /**
+   *
+   * @param videoId a video id
+   * @return the number of invalidations of the id's counter so far
+   */
+  private long version(UUID videoId) {
+    return versions.get(stripe(videoId));
+  }
+
+  /**
+   *
+   * @param videoIds video ids about to be looked up
+   * @return the {@link #version(UUID)} of each id
+   */
+  private Map<UUID, Long> versions(Collection<UUID> videoIds) {
+    Map<UUID, Long> versions = new HashMap<>();
+    videoIds.forEach(videoId -> versions.put(videoId, version(videoId)));
+    return versions;
+  }
+
+  /**
+   *
+   * @param videoId a video id
+   * @return the index of the id's invalidation counter
+   */
+  private static int stripe(UUID videoId) {
+    return videoId.hashCode() & (VERSION_STRIPES - 1);
+  }
+
+  /**
+   *
+   * @param video a video
+   * @return the approximate size of the video in bytes
+   */
+  static int weight(Video video) {
+    int weight = 64;
+    if (video.getTitle() != null) {
+      weight += 2 * video.getTitle().length();
+    }
+    if (video.getDescription() != null) {
+      weight += 2 * video.getDescription().length();
+    }
+    return weight;
+  }
+}
@@ -0,0 +1,178 @@
+package examples;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent single video saves into fewer, larger writes.
+ *
+ * {@link #save(Video)} and {@link #saveAsync(Video)} queue the video rather than writing it. The
+ * queue is written with a single {@link VideoDao#saveEach(java.util.Collection)} (which the
+ * DataStax dao groups by partition) once it holds the maximum batch size, or once the first
+ * queued video has waited for the maximum linger, whichever comes first. Each caller's future
+ * completes with the outcome for its own video: the video, null if it wasn't saved (as with
+ * {@link VideoDao#save(Video)}), or the failure of its write. Saves of collections are not coalesced.
+ *
+ * Lingering batches are written from the scheduler's thread, so the delegate should save
+ * asynchronously. A scheduler that has been shut down still writes the batches already lingering
+ * (the default for {@link java.util.concurrent.ScheduledThreadPoolExecutor}); later saves are
+ * written immediately.
+ */
+public class CoalescingVideoDao extends ForwardingVideoDao implements Closeable {
+
+  private final int maximumBatchSize;
+  private final long maximumLingerNanos;
+  private final ScheduledExecutorService scheduler;
+  private List<PendingSave> pending = new ArrayList<>();
+  private ScheduledFuture<?> lingering;
+
+  /**
+   *
+   * @param delegate the dao to write batches to
+   * @param maximumBatchSize the number of queued videos that are written without waiting any longer
+   * @param maximumLinger how long the first video in a batch waits for others to join it
+   * @param scheduler writes batches that reach the maximum linger
+   */
+  public CoalescingVideoDao(VideoDao delegate, int maximumBatchSize, Duration maximumLinger, ScheduledExecutorService scheduler) {
+    super(delegate);
+    if (maximumBatchSize < 1) {
+      throw new IllegalArgumentException("maximumBatchSize must be positive, was " + maximumBatchSize);
+    }
+    this.maximumBatchSize = maximumBatchSize;
+    this.maximumLingerNanos = maximumLinger.toNanos();
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public Video save(Video video) {
+    try {
+      return saveAsync(video).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Video> saveAsync(Video video) {
+    PendingSave save = new PendingSave(video);
+    List<PendingSave> batch = null;
+    synchronized (this) {
+      pending.add(save);
+      if (pending.size() >= maximumBatchSize) {
+        batch = drain();
+      } else if (pending.size() == 1) {
+        try {
+          lingering = scheduler.schedule(this::flush, maximumLingerNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+          batch = drain();
+        }
+      }
+    }
+    if (batch != null) {
+      write(batch);
+    }
+    return save.future;
+  }
+
+  /**
+   * Write the queued videos now, rather than waiting for the batch to fill or linger.
+   */
+  public void flush() {
+    List<PendingSave> batch;
+    synchronized (this) {
+      batch = drain();
+    }
+    if (!batch.isEmpty()) {
+      write(batch);
+    }
+  }
+
+  /**
+   * Writes the queued videos; the scheduler is not shut down, it belongs to the caller.
+   */
+  @Override
+  public void close() {
+    flush();
+  }
+
+  /**
+   * Must be called while synchronized on this instance.
+   *
+   * @return the queued saves, which are no longer queued
+   */
+  private List<PendingSave> drain() {
+    if (lingering != null) {
+      lingering.cancel(false);
+      lingering = null;
+    }
+    List<PendingSave> batch = pending;
+    pending = new ArrayList<>();
+    return batch;
+  }
+
+  /**
+   *
+   * @param batch the saves to write together
+   */
+  private void write(List<PendingSave> batch) {
+    List<Video> videos = new ArrayList<>(batch.size());
+    batch.forEach(save -> videos.add(save.video));
+    CompletableFuture<SaveResult> result;
+    try {
+      result = delegate().saveEach(videos);
+    } catch (RuntimeException e) {
+      result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+    }
+    result.whenComplete((saveResult, error) -> {
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      Map<Video, Throwable> failed = saveResult == null ? Collections.emptyMap() : saveResult.getFailed();
+      Set<Video> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+      if (saveResult != null) {
+        saved.addAll(saveResult.getSaved());
+      }
+      for (PendingSave save : batch) {
+        if (cause != null) {
+          save.future.completeExceptionally(cause);
+        } else if (failed.containsKey(save.video)) {
+          save.future.completeExceptionally(failed.get(save.video));
+        } else if (saved.contains(save.video)) {
+          save.future.complete(save.video);
+        } else {
+          // neither saved nor failed, e.g. not applied
+          save.future.complete(null);
+        }
+      }
+    });
+  }
+
+  /**
+   * A queued video and its caller's future.
+   */
+  private static class PendingSave {
+    private final Video video;
+    private final CompletableFuture<Video> future = new CompletableFuture<>();
+
+    PendingSave(Video video) {
+      this.video = video;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package examples;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link VideoDao} that forwards every method to another {@link VideoDao}, including the default
+ * methods, so the delegate's own implementations of them are used. Decorators extend this and
+ * override only the methods they change.
+ */
+public abstract class ForwardingVideoDao implements VideoDao {
+
+  private final VideoDao delegate;
+
+  /**
+   *
+   * @param delegate the dao to forward to
+   */
+  protected ForwardingVideoDao(VideoDao delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   *
+   * @return the dao this forwards to
+   */
+  protected VideoDao delegate() {
+    return delegate;
+  }
+
+  @Override
+  public Video save(Video video) {
+    return delegate.save(video);
+  }
+
+  @Override
+  public Collection<Video> save(Collection<Video> videos) {
+    return delegate.save(videos);
+  }
+
+  @Override
+  public Video retrieve(UUID videoId) {
+    return delegate.retrieve(videoId);
+  }
+
+  @Override
+  public VideoPage retrieveByUser(UUID userId, String cursor, int limit) {
+    return delegate.retrieveByUser(userId, cursor, limit);
+  }
+
+  @Override
+  public Video patch(Video patch) {
+    return delegate.patch(patch);
+  }
+
+  @Override
+  public VideoPage retrieveLatest(String cursor, int limit) {
+    return delegate.retrieveLatest(cursor, limit);
+  }
+
+  @Override
+  public Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    return delegate.retrieveAll(videoIds);
+  }
+
+  @Override
+  public void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    delegate.retrieveAll(videoIds, consumer);
+  }
+
+  @Override
+  public CompletableFuture<Video> saveAsync(Video video) {
+    return delegate.saveAsync(video);
+  }
+
+  @Override
+  public CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
+    return delegate.saveAsync(videos);
+  }
+
+  @Override
+  public CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    return delegate.saveEach(videos);
+  }
+
+  @Override
+  public CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    return delegate.retrieveAsync(videoId);
+  }
+
+  @Override
+  public void onEvery(Consumer<Video> function) {
+    delegate.onEvery(function);
+  }
+
+  @Override
+  public Stream<Video> stream() {
+    return delegate.stream();
+  }
+
+  @Override
+  public void onEveryVideoId(UuidSink sink) {
+    delegate.onEveryVideoId(sink);
+  }
+}
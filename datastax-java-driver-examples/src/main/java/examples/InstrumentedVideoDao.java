@@ -0,0 +1,190 @@
+package examples;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link VideoDao} decorator that times each operation of another {@link VideoDao}, publishing to a
+ * {@link MetricRegistry} under the provided name:
+ *
+ * <ul>
+ *   <li>{@code name.<operation>}: {@link Timer} of the operation, one of save, saveAll, saveAsync,
+ *   saveAllAsync, saveEach, patch, retrieve, retrieveAsync, retrieveAll, retrieveByUser and retrieveLatest</li>
+ *   <li>{@code name.<operation>.errors}: {@link Meter} of the operations that threw or failed</li>
+ *   <li>{@code name.saveAll.videos}: {@link Histogram} of the videos per collection save (of any kind)</li>
+ *   <li>{@code name.retrieveAll.ids}: {@link Histogram} of the ids per retrieveAll</li>
+ * </ul>
+ *
+ * Asynchronous operations are timed until their future completes. Scans are not timed; see
+ * {@link examples.datastax.ScanMetrics}.
+ */
+public class InstrumentedVideoDao extends ForwardingVideoDao {
+
+  private final Operation save;
+  private final Operation saveAll;
+  private final Operation saveAsync;
+  private final Operation saveAllAsync;
+  private final Operation saveEach;
+  private final Operation patch;
+  private final Operation retrieve;
+  private final Operation retrieveAsync;
+  private final Operation retrieveAll;
+  private final Operation retrieveByUser;
+  private final Operation retrieveLatest;
+  private final Histogram videosPerSave;
+  private final Histogram idsPerRetrieve;
+
+  /**
+   *
+   * @param delegate the dao to time
+   * @param registry the registry to publish to
+   * @param name the prefix for each metric name
+   */
+  public InstrumentedVideoDao(VideoDao delegate, MetricRegistry registry, String name) {
+    super(delegate);
+    this.save = new Operation(registry, name(name, "save"));
+    this.saveAll = new Operation(registry, name(name, "saveAll"));
+    this.saveAsync = new Operation(registry, name(name, "saveAsync"));
+    this.saveAllAsync = new Operation(registry, name(name, "saveAllAsync"));
+    this.saveEach = new Operation(registry, name(name, "saveEach"));
+    this.patch = new Operation(registry, name(name, "patch"));
+    this.retrieve = new Operation(registry, name(name, "retrieve"));
+    this.retrieveAsync = new Operation(registry, name(name, "retrieveAsync"));
+    this.retrieveAll = new Operation(registry, name(name, "retrieveAll"));
+    this.retrieveByUser = new Operation(registry, name(name, "retrieveByUser"));
+    this.retrieveLatest = new Operation(registry, name(name, "retrieveLatest"));
+    this.videosPerSave = registry.histogram(name(name, "saveAll", "videos"));
+    this.idsPerRetrieve = registry.histogram(name(name, "retrieveAll", "ids"));
+  }
+
+  @Override
+  public Video save(Video video) {
+    return save.time(() -> delegate().save(video));
+  }
+
+  @Override
+  public Collection<Video> save(Collection<Video> videos) {
+    videosPerSave.update(videos.size());
+    return saveAll.time(() -> delegate().save(videos));
+  }
+
+  @Override
+  public CompletableFuture<Video> saveAsync(Video video) {
+    return saveAsync.timeAsync(() -> delegate().saveAsync(video));
+  }
+
+  @Override
+  public CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
+    videosPerSave.update(videos.size());
+    return saveAllAsync.timeAsync(() -> delegate().saveAsync(videos));
+  }
+
+  @Override
+  public CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    videosPerSave.update(videos.size());
+    return saveEach.timeAsync(() -> delegate().saveEach(videos));
+  }
+
+  @Override
+  public Video patch(Video patch) {
+    return this.patch.time(() -> delegate().patch(patch));
+  }
+
+  @Override
+  public Video retrieve(UUID videoId) {
+    return retrieve.time(() -> delegate().retrieve(videoId));
+  }
+
+  @Override
+  public CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    return retrieveAsync.timeAsync(() -> delegate().retrieveAsync(videoId));
+  }
+
+  @Override
+  public VideoPage retrieveByUser(UUID userId, String cursor, int limit) {
+    return retrieveByUser.time(() -> delegate().retrieveByUser(userId, cursor, limit));
+  }
+
+  @Override
+  public VideoPage retrieveLatest(String cursor, int limit) {
+    return retrieveLatest.time(() -> delegate().retrieveLatest(cursor, limit));
+  }
+
+  @Override
+  public Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    idsPerRetrieve.update(videoIds.size());
+    return retrieveAll.time(() -> delegate().retrieveAll(videoIds));
+  }
+
+  @Override
+  public void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    idsPerRetrieve.update(videoIds.size());
+    retrieveAll.time(() -> {
+      delegate().retrieveAll(videoIds, consumer);
+      return null;
+    });
+  }
+
+  /**
+   * The timer and error meter of one operation.
+   */
+  private static class Operation {
+    private final Timer timer;
+    private final Meter errors;
+
+    Operation(MetricRegistry registry, String name) {
+      this.timer = registry.timer(name);
+      this.errors = registry.meter(name(name, "errors"));
+    }
+
+    /**
+     *
+     * @param operation the operation to time
+     * @return the result of the operation
+     */
+    <T> T time(Supplier<T> operation) {
+      final Timer.Context context = timer.time();
+      try {
+        return operation.get();
+      } catch (RuntimeException | Error e) {
+        errors.mark();
+        throw e;
+      } finally {
+        context.stop();
+      }
+    }
+
+    /**
+     *
+     * @param operation the operation to time
+     * @return the operation's future, which stops the timer when it completes
+     */
+    <T> CompletableFuture<T> timeAsync(Supplier<CompletableFuture<T>> operation) {
+      final Timer.Context context = timer.time();
+      CompletableFuture<T> future;
+      try {
+        future = operation.get();
+      } catch (RuntimeException | Error e) {
+        context.stop();
+        errors.mark();
+        throw e;
+      }
+      return future.whenComplete((result, error) -> {
+        context.stop();
+        if (error != null) {
+          errors.mark();
+        }
+      });
+    }
+  }
+}
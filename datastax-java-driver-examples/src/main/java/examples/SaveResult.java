@@ -0,0 +1,55 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of saving each video in a collection; see {@link VideoDao#saveEach(java.util.Collection)}.
+ *
+ * Safe to record into from multiple threads.
+ */
+public class SaveResult {
+
+  private final List<Video> saved = new ArrayList<>();
+  private final Map<Video, Throwable> failed = new IdentityHashMap<>();
+
+  /**
+   *
+   * @param video a video that was stored
+   * @return this instance
+   */
+  public synchronized SaveResult saved(Video video) {
+    saved.add(video);
+    return this;
+  }
+
+  /**
+   *
+   * @param video a video that was not stored
+   * @param cause why it wasn't stored
+   * @return this instance
+   */
+  public synchronized SaveResult failed(Video video, Throwable cause) {
+    failed.put(video, cause);
+    return this;
+  }
+
+  /**
+   *
+   * @return the videos that were stored
+   */
+  public synchronized List<Video> getSaved() {
+    return Collections.unmodifiableList(new ArrayList<>(saved));
+  }
+
+  /**
+   *
+   * @return the videos that were not stored (keyed by identity), and why
+   */
+  public synchronized Map<Video, Throwable> getFailed() {
+    return Collections.unmodifiableMap(new IdentityHashMap<>(failed));
+  }
+}
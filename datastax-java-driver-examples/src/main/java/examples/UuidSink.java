@@ -0,0 +1,17 @@
+package examples;
+
+import java.util.UUID;
+
+/**
+ * Receives {@link UUID}s as their two component longs, so no object is allocated per value.
+ */
+@FunctionalInterface
+public interface UuidSink {
+
+  /**
+   *
+   * @param mostSignificantBits see {@link UUID#getMostSignificantBits()}
+   * @param leastSignificantBits see {@link UUID#getLeastSignificantBits()}
+   */
+  void accept(long mostSignificantBits, long leastSignificantBits);
+}
@@ -2,8 +2,17 @@ package examples;
 
 import com.google.common.collect.ImmutableList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Simple data access interface for {@link Video}s
@@ -29,6 +38,22 @@ public interface VideoDao {
    */
   Collection<Video> save(Collection<Video> videos);
 
+  /**
+   * Change only the non-null fields of an existing video.
+   * The default retrieves the video and saves it with the patch applied; implementations should
+   * override it to write only the patched fields.
+   *
+   * @param patch the fields to change, with the target {@link Video#getVideoId()}
+   * @return the patched video, or null if there is no such video
+   */
+  default Video patch(Video patch) {
+    Video current = retrieve(patch.getVideoId());
+    if (current == null) {
+      return null;
+    }
+    return save(patched(current, patch));
+  }
+
   /**
    *
    * @param videoId the target {@link Video#getVideoId()}
@@ -36,12 +61,178 @@ public interface VideoDao {
    */
   Video retrieve(UUID videoId);
 
+  /**
+   * Page through a user's videos, most recently added first.
+   *
+   * @param userId the target {@link Video#getUserId()}
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, must be positive
+   * @return a page of the user's videos; the last page has no next cursor
+   * @throws IllegalArgumentException if the cursor is not one returned for this user
+   */
+  VideoPage retrieveByUser(UUID userId, String cursor, int limit);
+
+  /**
+   * Page through the most recently added videos, most recent first.
+   *
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, must be positive
+   * @return a page of the most recently added videos; the last page has no next cursor
+   * @throws IllegalArgumentException if the cursor is not one returned by this method
+   */
+  VideoPage retrieveLatest(String cursor, int limit);
+
+  /**
+   *
+   * @param current a video
+   * @param patch the fields to change
+   * @return a copy of the current video, with the non-null fields of the patch
+   */
+  static Video patched(Video current, Video patch) {
+    return new Video()
+      .setVideoId(current.getVideoId())
+      .setAdded(patch.getAdded() != null ? patch.getAdded() : current.getAdded())
+      .setTitle(patch.getTitle() != null ? patch.getTitle() : current.getTitle())
+      .setDescription(patch.getDescription() != null ? patch.getDescription() : current.getDescription())
+      .setUserId(patch.getUserId() != null ? patch.getUserId() : current.getUserId());
+  }
+
+  /**
+   * Retrieve many videos. Duplicate ids are looked up once.
+   * The default calls {@link #retrieve(UUID)} for each id in turn; implementations should override
+   * it to look up ids concurrently.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @return the matching {@link Video}s by id, in the order of the ids; ids without a video are omitted
+   */
+  default Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    Map<UUID, Video> videos = new LinkedHashMap<>();
+    for (UUID videoId : new LinkedHashSet<>(videoIds)) {
+      Video video = retrieve(videoId);
+      if (video != null) {
+        videos.put(videoId, video);
+      }
+    }
+    return videos;
+  }
+
+  /**
+   * Retrieve many videos, handing each to the consumer as soon as it arrives rather than once all
+   * have arrived. Duplicate ids are looked up once. The consumer is invoked on the calling thread.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @param consumer receives each matching {@link Video}, in the order the lookups complete
+   */
+  default void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    retrieveAll(videoIds).values().forEach(consumer);
+  }
+
+  /**
+   * Save a single video without blocking the calling thread.
+   *
+   * @param video the video to save (not null)
+   * @return a future of the saved video, or of null if it wasn't saved
+   */
+  default CompletableFuture<Video> saveAsync(Video video) {
+    return saveAsync(ImmutableList.of(video))
+      .thenApply(videos -> videos.isEmpty() ? null : videos.iterator().next());
+  }
+
+  /**
+   * Save a collection of videos without blocking the calling thread.
+   * The default calls {@link #save(Collection)} on the calling thread; implementations backed by an
+   * asynchronous client should override it.
+   *
+   * @param videos the videos to save
+   * @return a future of the saved videos
+   */
+  default CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
+    CompletableFuture<Collection<Video>> future = new CompletableFuture<>();
+    try {
+      future.complete(save(videos));
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Save a collection of videos without blocking the calling thread, reporting the outcome for
+   * each video rather than for the collection as a whole.
+   * The default is based on {@link #saveAsync(Collection)}: videos it doesn't return are failed with
+   * an {@link IllegalStateException}, and if it fails, every video fails with its exception.
+   *
+   * @param videos the videos to save
+   * @return a future of the outcome for each video; completes normally even if videos failed
+   */
+  default CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    return saveAsync(videos).handle((saved, error) -> {
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      SaveResult result = new SaveResult();
+      Set<Video> stored = Collections.newSetFromMap(new IdentityHashMap<>());
+      if (saved != null) {
+        stored.addAll(saved);
+      }
+      for (Video video : videos) {
+        if (stored.contains(video)) {
+          result.saved(video);
+        } else {
+          result.failed(video, cause != null ? cause : new IllegalStateException("video was not saved"));
+        }
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Retrieve a video without blocking the calling thread.
+   * The default calls {@link #retrieve(UUID)} on the calling thread; implementations backed by an
+   * asynchronous client should override it.
+   *
+   * @param videoId the target {@link Video#getVideoId()}
+   * @return a future of the matching {@link Video}, or of null
+   */
+  default CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    CompletableFuture<Video> future = new CompletableFuture<>();
+    try {
+      future.complete(retrieve(videoId));
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * WARNING: this is an expensive operation.
    *
    * Run {@link Consumer#accept(Object)} on each and every stored {@link Video}.
+   * Implementations may scan in parallel, so the function must be safe to invoke concurrently.
    *
    * @param function the consumer to run on each
    */
   void onEvery(Consumer<Video> function);
+
+  /**
+   * WARNING: consuming the entire stream is an expensive operation.
+   *
+   * Lazily stream every stored {@link Video}; unlike {@link #onEvery(Consumer)}, short-circuiting
+   * operations (e.g. {@link Stream#limit(long)}) stop reading once satisfied.
+   *
+   * @return a stream of every stored {@link Video}
+   */
+  Stream<Video> stream();
+
+  /**
+   * WARNING: this is an expensive operation.
+   *
+   * Run {@link UuidSink#accept(long, long)} on the {@link Video#getVideoId()} of each and every
+   * stored {@link Video}. Implementations should read only the id, without creating a {@link Video}
+   * per row; the default simply delegates to {@link #onEvery(Consumer)}.
+   * Implementations may scan in parallel, so the sink must be safe to invoke concurrently.
+   *
+   * @param sink the sink to receive each id
+   */
+  default void onEveryVideoId(UuidSink sink) {
+    onEvery(v -> sink.accept(v.getVideoId().getMostSignificantBits(), v.getVideoId().getLeastSignificantBits()));
+  }
 }
@@ -0,0 +1,144 @@
+package examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a snapshot file written by {@link VideoSnapshotWriter} through a memory mapping, so the
+ * operating system pages the file in (and shares it between readers) rather than copying it
+ * through a heap buffer.
+ *
+ * Files larger than 2 GiB (the limit of a single {@link MappedByteBuffer}) are not supported.
+ * Each call to {@link #iterator()}, {@link #stream()} or {@link #forEachVideoId(UuidSink)} reads the
+ * file from the beginning; the reader itself is not thread safe.
+ */
+public class VideoSnapshotReader implements Iterable<Video>, Closeable {
+
+  private final FileChannel channel;
+  private final MappedByteBuffer mapped;
+
+  /**
+   *
+   * @param file a snapshot file
+   * @throws IOException if the file can't be mapped
+   * @throws IllegalArgumentException if the file isn't a snapshot, or is too large to map
+   */
+  public VideoSnapshotReader(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(file + " is too large to map (" + channel.size() + " bytes)");
+      }
+      this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (mapped.remaining() < 8 || mapped.getInt(0) != VideoSnapshotWriter.MAGIC) {
+        throw new IllegalArgumentException(file + " is not a video snapshot");
+      }
+      if (mapped.getInt(4) != VideoSnapshotWriter.VERSION) {
+        throw new IllegalArgumentException(file + " has unsupported snapshot version " + mapped.getInt(4));
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   *
+   * @return an iterator over every video in the snapshot, in the order they were written
+   */
+  @Override
+  public Iterator<Video> iterator() {
+    ByteBuffer records = records();
+    return new Iterator<Video>() {
+      @Override
+      public boolean hasNext() {
+        return records.hasRemaining();
+      }
+
+      @Override
+      public Video next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int length = records.getInt();
+        int end = records.position() + length;
+        Video video = new Video().setVideoId(new UUID(records.getLong(), records.getLong()));
+        int flags = records.get();
+        if ((flags & VideoSnapshotWriter.ADDED) != 0) {
+          video.setAdded(Instant.ofEpochMilli(records.getLong()));
+        }
+        if ((flags & VideoSnapshotWriter.USER_ID) != 0) {
+          video.setUserId(new UUID(records.getLong(), records.getLong()));
+        }
+        if ((flags & VideoSnapshotWriter.TITLE) != 0) {
+          video.setTitle(string(records));
+        }
+        if ((flags & VideoSnapshotWriter.DESCRIPTION) != 0) {
+          video.setDescription(string(records));
+        }
+        // skip any fields added by a later version of the layout
+        records.position(end);
+        return video;
+      }
+    };
+  }
+
+  /**
+   *
+   * @return a stream of every video in the snapshot
+   */
+  public Stream<Video> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL | Spliterator.ORDERED), false);
+  }
+
+  /**
+   * Read only the id of each video, skipping over the rest of each record without decoding it.
+   *
+   * @param sink the sink to receive each id
+   */
+  public void forEachVideoId(UuidSink sink) {
+    ByteBuffer records = records();
+    while (records.hasRemaining()) {
+      int length = records.getInt();
+      int start = records.position();
+      sink.accept(records.getLong(start), records.getLong(start + 8));
+      records.position(start + length);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   *
+   * @return an independent view of the records, positioned after the header
+   */
+  private ByteBuffer records() {
+    ByteBuffer records = mapped.duplicate();
+    records.position(8);
+    return records;
+  }
+
+  private static String string(ByteBuffer records) {
+    byte[] bytes = new byte[records.getInt()];
+    records.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
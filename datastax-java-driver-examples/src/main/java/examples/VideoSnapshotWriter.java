@@ -0,0 +1,151 @@
+package examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Writes {@link Video}s to a compact binary snapshot file, readable with {@link VideoSnapshotReader}.
+ *
+ * The file starts with {@link #MAGIC} and {@link #VERSION} (4 bytes each), followed by one record
+ * per video: a 4 byte length, then that many bytes of payload:
+ *
+ * <ol>
+ *   <li>video id: 16 bytes (most, then least significant bits)</li>
+ *   <li>flags: 1 byte, a bit for each of the nullable fields below that is present</li>
+ *   <li>added: 8 bytes, milliseconds since the epoch</li>
+ *   <li>user id: 16 bytes</li>
+ *   <li>title: 4 byte length, then UTF-8 bytes</li>
+ *   <li>description: 4 byte length, then UTF-8 bytes</li>
+ * </ol>
+ *
+ * Records are encoded into a fixed-size buffer that is written to the file whenever it fills, so
+ * memory use doesn't grow with the size of the table. {@link #accept(Video)} is synchronized, so a
+ * single writer can consume a parallel {@link VideoDao#onEvery(Consumer)}.
+ */
+public class VideoSnapshotWriter implements Consumer<Video>, Closeable {
+
+  /**
+   * First 4 bytes of every snapshot file, "VSNP".
+   */
+  public static final int MAGIC = 0x56534e50;
+  /**
+   * Version of the record layout.
+   */
+  public static final int VERSION = 1;
+  static final int ADDED = 1;
+  static final int USER_ID = 1 << 1;
+  static final int TITLE = 1 << 2;
+  static final int DESCRIPTION = 1 << 3;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long count;
+
+  /**
+   *
+   * @param file the file to create (or replace)
+   * @param bufferSize the size of the write buffer in bytes; larger records are written directly
+   * @throws IOException if the file can't be opened
+   */
+  public VideoSnapshotWriter(Path file, int bufferSize) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    buffer.putInt(MAGIC).putInt(VERSION);
+  }
+
+  /**
+   *
+   * @param video the video to append, must have a {@link Video#getVideoId()}
+   * @throws UncheckedIOException if the buffer can't be written to the file
+   */
+  @Override
+  public synchronized void accept(Video video) {
+    byte[] title = video.getTitle() == null ? null : video.getTitle().getBytes(StandardCharsets.UTF_8);
+    byte[] description = video.getDescription() == null ? null : video.getDescription().getBytes(StandardCharsets.UTF_8);
+    int flags = (video.getAdded() == null ? 0 : ADDED)
+      | (video.getUserId() == null ? 0 : USER_ID)
+      | (title == null ? 0 : TITLE)
+      | (description == null ? 0 : DESCRIPTION);
+    int length = 16 + 1
+      + (video.getAdded() == null ? 0 : 8)
+      + (video.getUserId() == null ? 0 : 16)
+      + (title == null ? 0 : 4 + title.length)
+      + (description == null ? 0 : 4 + description.length);
+
+    try {
+      ByteBuffer target = buffer;
+      if (4 + length > buffer.remaining()) {
+        flush();
+        if (4 + length > buffer.capacity()) {
+          target = ByteBuffer.allocate(4 + length);
+        }
+      }
+      target.putInt(length)
+        .putLong(video.getVideoId().getMostSignificantBits())
+        .putLong(video.getVideoId().getLeastSignificantBits())
+        .put((byte) flags);
+      if (video.getAdded() != null) {
+        target.putLong(video.getAdded().toEpochMilli());
+      }
+      if (video.getUserId() != null) {
+        target.putLong(video.getUserId().getMostSignificantBits())
+          .putLong(video.getUserId().getLeastSignificantBits());
+      }
+      if (title != null) {
+        target.putInt(title.length).put(title);
+      }
+      if (description != null) {
+        target.putInt(description.length).put(description);
+      }
+      if (target != buffer) {
+        target.flip();
+        writeFully(target);
+      }
+      count++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write snapshot record", e);
+    }
+  }
+
+  /**
+   *
+   * @return the number of videos written so far
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Write out the buffer, and close the file.
+   *
+   * @throws IOException if the buffer can't be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+      channel.force(false);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      channel.write(source);
+    }
+  }
+}
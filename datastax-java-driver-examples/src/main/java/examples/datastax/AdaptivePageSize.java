@@ -0,0 +1,73 @@
+package examples.datastax;
+
+import java.time.Duration;
+
+/**
+ * {@link PageController} that steers the page size towards a target page latency, without letting
+ * a page grow beyond a maximum number of bytes.
+ *
+ * After each page, the rows per nanosecond and bytes per row observed are used to estimate the
+ * page size that would have hit both targets. The page size moves halfway towards that estimate,
+ * at most doubling per page, and always within [minimum, maximum]. Pages that came back short
+ * (the end of a range) say nothing about a larger page, so they never grow the page size.
+ *
+ * @author https://github.com/nblair
+ */
+public class AdaptivePageSize implements PageController {
+
+  private final int minimum;
+  private final int maximum;
+  private final long targetLatencyNanos;
+  private final long maximumPageBytes;
+  private int pageSize;
+
+  /**
+   *
+   * @param minimum the smallest page size, must be positive
+   * @param maximum the largest page size, must be at least minimum
+   * @param targetLatency the desired time to fetch a page
+   * @param maximumPageBytes the largest desired page, in bytes
+   */
+  public AdaptivePageSize(int minimum, int maximum, Duration targetLatency, long maximumPageBytes) {
+    if (minimum < 1 || maximum < minimum) {
+      throw new IllegalArgumentException("page size bounds must satisfy 0 < minimum <= maximum, were " + minimum + " and " + maximum);
+    }
+    if (targetLatency.isNegative() || targetLatency.isZero()) {
+      throw new IllegalArgumentException("targetLatency must be positive, was " + targetLatency);
+    }
+    if (maximumPageBytes < 1) {
+      throw new IllegalArgumentException("maximumPageBytes must be positive, was " + maximumPageBytes);
+    }
+    this.minimum = minimum;
+    this.maximum = maximum;
+    this.targetLatencyNanos = targetLatency.toNanos();
+    this.maximumPageBytes = maximumPageBytes;
+    this.pageSize = minimum;
+  }
+
+  @Override
+  public synchronized int pageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public synchronized void onPage(int rows, long bytes, long latencyNanos) {
+    if (rows == 0 || latencyNanos < 0) {
+      return;
+    }
+    double ideal = (double) rows * targetLatencyNanos / Math.max(latencyNanos, 1L);
+    if (bytes > 0) {
+      ideal = Math.min(ideal, (double) rows * maximumPageBytes / bytes);
+    }
+    if (rows < pageSize) {
+      ideal = Math.min(ideal, pageSize);
+    }
+    double next = Math.min(pageSize + (ideal - pageSize) / 2, 2.0 * pageSize);
+    pageSize = (int) Math.max(minimum, Math.min(maximum, next));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "AdaptivePageSize[" + minimum + ", " + maximum + "] at " + pageSize;
+  }
+}
@@ -0,0 +1,368 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PerHostPercentileTracker;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolOptions.Compression;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.NoSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.PercentileSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import com.datastax.driver.extras.codecs.jdk8.InstantCodec;
+
+/**
+ * Settings for building the {@link Cluster} shared by everything that talks to Cassandra.
+ *
+ * A {@link Cluster} owns a connection pool per host, a control connection and a copy of the
+ * schema and token metadata, so an application should build one, share its {@link com.datastax.driver.core.Session},
+ * and close it on shutdown.
+ *
+ * Defaults match the driver's defaults for protocol v3 and later (a single connection per local host
+ * carrying up to 1024 concurrent requests), except the load balancing policy: statements are sent to
+ * a replica of their partition (token aware) in the local data center, and sub-range scans to the replica
+ * chosen for their range (see {@link ReplicaRoutingPolicy}).
+ *
+ * Speculative execution is off by default. When enabled, a statement that is still waiting for a
+ * response after the delay is also sent to the next host in its query plan, and the first response
+ * wins; only statements marked idempotent (see {@link DataStaxVideoDao}) are executed speculatively.
+ *
+ * @author https://github.com/nblair
+ */
+public class ClusterOptions {
+
+  private String[] contactPoints;
+  private String localDataCenter;
+  private boolean tokenAware = true;
+  private int coreConnectionsPerHost = 1;
+  private int maxConnectionsPerHost = 1;
+  private int maxRequestsPerConnection = 1024;
+  private int connectTimeoutMillis = SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+  private int readTimeoutMillis = SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS;
+  private Compression compression = Compression.NONE;
+  private SpeculativeExecution speculativeExecution = SpeculativeExecution.NONE;
+  private long speculativeExecutionDelayMillis = 100L;
+  private double speculativeExecutionPercentile = 99.0;
+  private int maximumSpeculativeExecutions = 1;
+
+  /**
+   * When to send a slow idempotent statement to another host as well.
+   */
+  public enum SpeculativeExecution {
+    /**
+     * Never.
+     */
+    NONE,
+    /**
+     * After a constant delay, see {@link #setSpeculativeExecutionDelayMillis(long)}.
+     */
+    CONSTANT,
+    /**
+     * After the latency percentile of the host queried first, see {@link #setSpeculativeExecutionPercentile(double)}.
+     * Until enough latencies have been recorded in an interval (1000 per 30 seconds), statements are not
+     * executed speculatively. Requires org.hdrhistogram:HdrHistogram on the classpath.
+     *
+     * Every statement of the cluster's sessions is recorded, so on a session that also runs table
+     * scans, their page latencies raise the percentile; give scans their own cluster, or use
+     * {@link #CONSTANT}.
+     */
+    PERCENTILE
+  }
+
+  /**
+   *
+   * @return the hosts used to discover the cluster
+   */
+  public String[] getContactPoints() {
+    return contactPoints;
+  }
+
+  /**
+   *
+   * @param contactPoints the hosts used to discover the cluster
+   * @return this instance
+   */
+  public ClusterOptions setContactPoints(String... contactPoints) {
+    this.contactPoints = contactPoints;
+    return this;
+  }
+
+  /**
+   *
+   * @return the data center whose hosts are queried, or null to use the data center of the contact points
+   */
+  public String getLocalDataCenter() {
+    return localDataCenter;
+  }
+
+  /**
+   *
+   * @param localDataCenter the data center whose hosts are queried, or null to use the data center of the contact points
+   * @return this instance
+   */
+  public ClusterOptions setLocalDataCenter(String localDataCenter) {
+    this.localDataCenter = localDataCenter;
+    return this;
+  }
+
+  /**
+   *
+   * @return true if statements are sent to a replica of their partition
+   */
+  public boolean isTokenAware() {
+    return tokenAware;
+  }
+
+  /**
+   *
+   * @param tokenAware true to send statements to a replica of their partition
+   * @return this instance
+   */
+  public ClusterOptions setTokenAware(boolean tokenAware) {
+    this.tokenAware = tokenAware;
+    return this;
+  }
+
+  /**
+   *
+   * @return the number of connections kept open to each local host
+   */
+  public int getCoreConnectionsPerHost() {
+    return coreConnectionsPerHost;
+  }
+
+  /**
+   *
+   * @param coreConnectionsPerHost the number of connections kept open to each local host
+   * @return this instance
+   */
+  public ClusterOptions setCoreConnectionsPerHost(int coreConnectionsPerHost) {
+    this.coreConnectionsPerHost = coreConnectionsPerHost;
+    return this;
+  }
+
+  /**
+   *
+   * @return the number of connections each local host's pool may grow to under load
+   */
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  /**
+   *
+   * @param maxConnectionsPerHost the number of connections each local host's pool may grow to under load
+   * @return this instance
+   */
+  public ClusterOptions setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    return this;
+  }
+
+  /**
+   *
+   * @return the number of concurrent requests on each connection to a local host
+   */
+  public int getMaxRequestsPerConnection() {
+    return maxRequestsPerConnection;
+  }
+
+  /**
+   *
+   * @param maxRequestsPerConnection the number of concurrent requests on each connection to a local host
+   * @return this instance
+   */
+  public ClusterOptions setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+    this.maxRequestsPerConnection = maxRequestsPerConnection;
+    return this;
+  }
+
+  /**
+   *
+   * @return how long to wait for a connection to be established
+   */
+  public int getConnectTimeoutMillis() {
+    return connectTimeoutMillis;
+  }
+
+  /**
+   *
+   * @param connectTimeoutMillis how long to wait for a connection to be established
+   * @return this instance
+   */
+  public ClusterOptions setConnectTimeoutMillis(int connectTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    return this;
+  }
+
+  /**
+   *
+   * @return how long to wait for the response to a request
+   */
+  public int getReadTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  /**
+   * Should be longer than the server's read_request_timeout_in_ms, so the server reports the
+   * timeout (along with how many replicas responded) rather than the driver.
+   *
+   * @param readTimeoutMillis how long to wait for the response to a request
+   * @return this instance
+   */
+  public ClusterOptions setReadTimeoutMillis(int readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+    return this;
+  }
+
+  /**
+   *
+   * @return the compression of protocol frames
+   */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /**
+   * {@link Compression#LZ4} requires net.jpountz.lz4:lz4 on the classpath.
+   *
+   * @param compression the compression of protocol frames
+   * @return this instance
+   */
+  public ClusterOptions setCompression(Compression compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  /**
+   *
+   * @return when to send a slow idempotent statement to another host as well
+   */
+  public SpeculativeExecution getSpeculativeExecution() {
+    return speculativeExecution;
+  }
+
+  /**
+   *
+   * @param speculativeExecution when to send a slow idempotent statement to another host as well
+   * @return this instance
+   */
+  public ClusterOptions setSpeculativeExecution(SpeculativeExecution speculativeExecution) {
+    this.speculativeExecution = speculativeExecution;
+    return this;
+  }
+
+  /**
+   *
+   * @return the delay before each speculative execution, with {@link SpeculativeExecution#CONSTANT}
+   */
+  public long getSpeculativeExecutionDelayMillis() {
+    return speculativeExecutionDelayMillis;
+  }
+
+  /**
+   *
+   * @param speculativeExecutionDelayMillis the delay before each speculative execution, with {@link SpeculativeExecution#CONSTANT}
+   * @return this instance
+   */
+  public ClusterOptions setSpeculativeExecutionDelayMillis(long speculativeExecutionDelayMillis) {
+    this.speculativeExecutionDelayMillis = speculativeExecutionDelayMillis;
+    return this;
+  }
+
+  /**
+   *
+   * @return the latency percentile after which a statement is executed speculatively, with {@link SpeculativeExecution#PERCENTILE}
+   */
+  public double getSpeculativeExecutionPercentile() {
+    return speculativeExecutionPercentile;
+  }
+
+  /**
+   *
+   * @param speculativeExecutionPercentile the latency percentile (between 0 and 100) after which a statement is executed speculatively,
+   * with {@link SpeculativeExecution#PERCENTILE}
+   * @return this instance
+   */
+  public ClusterOptions setSpeculativeExecutionPercentile(double speculativeExecutionPercentile) {
+    this.speculativeExecutionPercentile = speculativeExecutionPercentile;
+    return this;
+  }
+
+  /**
+   *
+   * @return the maximum number of speculative executions of a statement, in addition to the first
+   */
+  public int getMaximumSpeculativeExecutions() {
+    return maximumSpeculativeExecutions;
+  }
+
+  /**
+   *
+   * @param maximumSpeculativeExecutions the maximum number of speculative executions of a statement, in addition to the first
+   * @return this instance
+   */
+  public ClusterOptions setMaximumSpeculativeExecutions(int maximumSpeculativeExecutions) {
+    this.maximumSpeculativeExecutions = maximumSpeculativeExecutions;
+    return this;
+  }
+
+  /**
+   *
+   * @return the load balancing policy described by these options
+   */
+  public LoadBalancingPolicy loadBalancingPolicy() {
+    DCAwareRoundRobinPolicy.Builder dcAware = DCAwareRoundRobinPolicy.builder();
+    if (localDataCenter != null) {
+      dcAware.withLocalDc(localDataCenter);
+    }
+    LoadBalancingPolicy policy = dcAware.build();
+    if (tokenAware) {
+      policy = new TokenAwarePolicy(policy);
+    }
+    return new ReplicaRoutingPolicy(policy);
+  }
+
+  /**
+   *
+   * @return a new {@link Cluster}, with the {@link InstantCodec} registered; the caller must close it
+   */
+  public Cluster build() {
+    // the tracker must also be registered with the cluster, to be told about latencies
+    PerHostPercentileTracker tracker = null;
+    SpeculativeExecutionPolicy speculativeExecutionPolicy;
+    switch (speculativeExecution) {
+      case CONSTANT:
+        speculativeExecutionPolicy = new ConstantSpeculativeExecutionPolicy(speculativeExecutionDelayMillis, maximumSpeculativeExecutions);
+        break;
+      case PERCENTILE:
+        // latencies beyond the read timeout are never recorded
+        tracker = PerHostPercentileTracker.builder(readTimeoutMillis).build();
+        speculativeExecutionPolicy = new PercentileSpeculativeExecutionPolicy(tracker, speculativeExecutionPercentile, maximumSpeculativeExecutions);
+        break;
+      default:
+        speculativeExecutionPolicy = NoSpeculativeExecutionPolicy.INSTANCE;
+    }
+    Cluster cluster = Cluster.builder()
+      .addContactPoints(contactPoints)
+      .withLoadBalancingPolicy(loadBalancingPolicy())
+      .withPoolingOptions(new PoolingOptions()
+        .setConnectionsPerHost(HostDistance.LOCAL, coreConnectionsPerHost, maxConnectionsPerHost)
+        .setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequestsPerConnection))
+      .withSocketOptions(new SocketOptions()
+        .setConnectTimeoutMillis(connectTimeoutMillis)
+        .setReadTimeoutMillis(readTimeoutMillis))
+      .withCompression(compression)
+      .withSpeculativeExecutionPolicy(speculativeExecutionPolicy)
+      .build();
+    if (tracker != null) {
+      cluster.register(tracker);
+    }
+    cluster.getConfiguration().getCodecRegistry().register(InstantCodec.instance);
+    return cluster;
+  }
+}
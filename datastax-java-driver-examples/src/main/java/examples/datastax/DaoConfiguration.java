@@ -1,9 +1,11 @@
 package examples.datastax;
 
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ProtocolOptions.Compression;
 import com.datastax.driver.core.Session;
-import com.datastax.driver.extras.codecs.jdk8.InstantCodec;
+import com.datastax.driver.core.SocketOptions;
 import examples.VideoDao;
+import examples.datastax.ClusterOptions.SpeculativeExecution;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +13,9 @@ import org.springframework.core.env.Environment;
 
 /**
  * Created by nblair on 2/16/17.
+ *
+ * The {@link Cluster} is built from the cassandra.* properties (see {@link ClusterOptions}), and
+ * closed with the application context.
  */
 @Configuration
 public class DaoConfiguration {
@@ -18,16 +23,28 @@ public class DaoConfiguration {
   @Autowired
   private Environment env;
 
-  @Bean
-  Session cassandraSession() {
-    String [] contactPoints = env.getProperty("cassandra.contactPoints", String[].class);
-    Cluster cluster = Cluster.builder()
-      .addContactPoints(contactPoints)
+  @Bean(destroyMethod = "close")
+  Cluster cassandraCluster() {
+    return new ClusterOptions()
+      .setContactPoints(env.getProperty("cassandra.contactPoints", String[].class))
+      .setLocalDataCenter(env.getProperty("cassandra.localDataCenter"))
+      .setTokenAware(env.getProperty("cassandra.tokenAware", Boolean.class, true))
+      .setCoreConnectionsPerHost(env.getProperty("cassandra.coreConnectionsPerHost", Integer.class, 1))
+      .setMaxConnectionsPerHost(env.getProperty("cassandra.maxConnectionsPerHost", Integer.class, 1))
+      .setMaxRequestsPerConnection(env.getProperty("cassandra.maxRequestsPerConnection", Integer.class, 1024))
+      .setConnectTimeoutMillis(env.getProperty("cassandra.connectTimeoutMillis", Integer.class, SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS))
+      .setReadTimeoutMillis(env.getProperty("cassandra.readTimeoutMillis", Integer.class, SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS))
+      .setCompression(env.getProperty("cassandra.compression", Compression.class, Compression.LZ4))
+      .setSpeculativeExecution(env.getProperty("cassandra.speculativeExecution", SpeculativeExecution.class, SpeculativeExecution.NONE))
+      .setSpeculativeExecutionDelayMillis(env.getProperty("cassandra.speculativeExecutionDelayMillis", Long.class, 100L))
+      .setSpeculativeExecutionPercentile(env.getProperty("cassandra.speculativeExecutionPercentile", Double.class, 99.0))
+      .setMaximumSpeculativeExecutions(env.getProperty("cassandra.maximumSpeculativeExecutions", Integer.class, 1))
       .build();
-    cluster.getConfiguration().getCodecRegistry().register(InstantCodec.instance);
-    Session session = cluster.connect(env.getProperty("cassandra.keyspace", "examples"));
+  }
 
-    return session;
+  @Bean @Autowired
+  Session cassandraSession(Cluster cluster) {
+    return cluster.connect(env.getProperty("cassandra.keyspace", "examples"));
   }
 
   @Bean @Autowired
@@ -0,0 +1,108 @@
+package examples.datastax;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the cost of the statements executed by {@link DataStaxVideoDao} to a {@link MetricRegistry},
+ * under the provided name:
+ *
+ * <ul>
+ *   <li>{@code name.writeLatency}: {@link Timer} of write statement latency, from execution until the response arrives</li>
+ *   <li>{@code name.readLatency}: {@link Timer} of read statement latency</li>
+ *   <li>{@code name.rowsPerWrite}: {@link Histogram} of the rows inserted by each write statement (1 unless it is a batch)</li>
+ *   <li>{@code name.notApplied}: {@link Meter} of write statements that completed but were not applied</li>
+ *   <li>{@code name.writeFailures}: {@link Meter} of write statements that failed</li>
+ *   <li>{@code name.readFailures}: {@link Meter} of read statements that failed</li>
+ *   <li>{@code name.readsAnsweredByLaterHost}: {@link Meter} of read statements answered by a host other than the
+ *   first one tried, i.e. won by a speculative execution (or, after an error, by a retry on the next host)</li>
+ *   <li>{@code name.mapRow}: {@link Timer} of the time taken to map a row to a video, sampled from one in
+ *   {@link DataStaxVideoDao#MAP_ROW_SAMPLE_RATE} rows read by lookups; rows read by scans aren't timed</li>
+ * </ul>
+ *
+ * Statement latency is measured on the client, so it includes the driver's queueing but not mapping
+ * the rows; comparing it with {@code mapRow} separates Cassandra latency from deserialization.
+ *
+ * @author https://github.com/nblair
+ */
+public class DaoMetrics {
+
+  private final Timer writeLatency;
+  private final Timer readLatency;
+  private final Histogram rowsPerWrite;
+  private final Meter notApplied;
+  private final Meter writeFailures;
+  private final Meter readFailures;
+  private final Meter readsAnsweredByLaterHost;
+  private final Timer mapRow;
+
+  /**
+   *
+   * @param registry the registry to publish to
+   * @param name the prefix for each metric name
+   */
+  public DaoMetrics(MetricRegistry registry, String name) {
+    this.writeLatency = registry.timer(name(name, "writeLatency"));
+    this.readLatency = registry.timer(name(name, "readLatency"));
+    this.rowsPerWrite = registry.histogram(name(name, "rowsPerWrite"));
+    this.notApplied = registry.meter(name(name, "notApplied"));
+    this.writeFailures = registry.meter(name(name, "writeFailures"));
+    this.readFailures = registry.meter(name(name, "readFailures"));
+    this.readsAnsweredByLaterHost = registry.meter(name(name, "readsAnsweredByLaterHost"));
+    this.mapRow = registry.timer(name(name, "mapRow"));
+  }
+
+  /**
+   * Record a completed write statement.
+   *
+   * @param rows the number of rows the statement inserts
+   * @param latencyNanos the time from execution until completion
+   * @param resultSet the result, or null if the statement failed
+   * @param error why the statement failed, or null
+   */
+  void onWrite(int rows, long latencyNanos, ResultSet resultSet, Throwable error) {
+    writeLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+    rowsPerWrite.update(rows);
+    if (error != null) {
+      writeFailures.mark();
+    } else if (!resultSet.wasApplied()) {
+      notApplied.mark();
+    }
+  }
+
+  /**
+   * Record a completed read statement.
+   *
+   * @param latencyNanos the time from execution until completion
+   * @param resultSet the result, or null if the statement failed
+   * @param error why the statement failed, or null
+   */
+  void onRead(long latencyNanos, ResultSet resultSet, Throwable error) {
+    readLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+    if (error != null) {
+      readFailures.mark();
+      return;
+    }
+    ExecutionInfo info = resultSet.getExecutionInfo();
+    // the driver doesn't say which execution won; every execution adds its host to the tried hosts
+    if (info != null && info.getTriedHosts().size() > 1 && !info.getTriedHosts().get(0).equals(info.getQueriedHost())) {
+      readsAnsweredByLaterHost.mark();
+    }
+  }
+
+  /**
+   * Record a mapped row.
+   *
+   * @param nanos the time taken to map the row
+   */
+  void onMapRow(long nanos) {
+    mapRow.update(nanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -1,40 +1,135 @@
 package examples.datastax;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.PagingStateException;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Uninterruptibles;
+import examples.SaveResult;
+import examples.UuidSink;
 import examples.Video;
 import examples.VideoDao;
+import examples.VideoPage;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Datastax Java driver backed {@link VideoDao}.
+ *
+ * Each video with a user (and an added date) is also written to a "by user" table (the table name followed by "_by_user",
+ * see schemas/videos_by_user.cql), partitioned by user_id and clustered by added_date, which
+ * {@link #retrieveByUser(UUID, String, int)} reads one partition of. Each video with an added date is
+ * also written to a "latest" table (the table name prefixed with "latest_", see schemas/latest_videos.cql),
+ * partitioned by the UTC day it was added, which {@link #retrieveLatest(String, int)} reads newest day
+ * first.
+ *
+ * The videos table is the source of truth. In either {@link WriteMode}, a video's rows in the by user
+ * and latest tables are written alongside its row in the videos table, not in the same batch, so
+ * the tables are not updated atomically: a save that fails partway is reported failed, and since
+ * every write is an idempotent upsert (or delete), saving the video again repairs them.
+ *
+ * Saving a video with a different user or added date leaves its previous rows in the other tables,
+ * unless {@link #setDeleteMovedRows(boolean)} is enabled. {@link #patch(Video)} always deletes them,
+ * since it reads the stored video anyway.
+ *
+ * Null fields are left unset rather than written as null, so saves and patches never write
+ * tombstones; saving a video with a null field keeps the column's current value. Unset values
+ * require native protocol v4 (Cassandra 2.2 or later).
  */
 @Singleton
 public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
 
+  /**
+   * One in this many rows mapped by lookups is timed, see {@link DaoMetrics}.
+   */
+  static final int MAP_ROW_SAMPLE_RATE = 16;
   private final Logger logger = LoggerFactory.getLogger(DataStaxVideoDao.class);
   private final Session session;
   private final String keyspace;
   private final String table;
   private final int batchSize;
+  private final Supplier<PreparedStatement> insert;
+  private final Supplier<PreparedStatement> retrieve;
+  private final Supplier<PreparedStatement> insertByUser;
+  private final Supplier<PreparedStatement> retrieveByUser;
+  private final Supplier<PreparedStatement> deleteByUser;
+  private final Supplier<PreparedStatement> insertLatest;
+  private final Supplier<PreparedStatement> retrieveLatest;
+  private final Supplier<PreparedStatement> retrieveLatestBefore;
+  private final Supplier<PreparedStatement> deleteLatest;
+  private TableScanOptions scanOptions = new TableScanOptions();
+  private WriteMode writeMode = WriteMode.LOGGED_BATCH;
+  private int maximumWritesInFlight = 32;
+  private int maximumReadsInFlight = 32;
+  private DaoMetrics metrics;
+  private ConsistencyLevel readConsistencyLevel;
+  private Duration readTimeout;
+  private ConsistencyLevel writeConsistencyLevel;
+  private Duration writeTimeout;
+  private int latestDays = 7;
+  private int latestDaysInFlight = 2;
+  private boolean deleteMovedRows;
+
+  /**
+   * How {@link #save(Collection)} writes more than one video.
+   */
+  public enum WriteMode {
+    /**
+     * Logged batches of up to batchSize videos, executed one after another. Each batch is applied
+     * (or not) as a whole, at the cost of a batchlog write on a coordinator that usually owns none
+     * of the partitions.
+     */
+    LOGGED_BATCH,
+    /**
+     * One write per partition (an unlogged batch when videos share a partition), executed
+     * concurrently with at most {@link #setMaximumWritesInFlight(int)} in flight. Each write goes
+     * straight to a replica, and each video succeeds or fails on its own.
+     */
+    PARTITIONED
+  }
 
   /**
    * Defaults to keyspace of "examples", table name of "videos", and a batchsize of 100.
@@ -57,30 +152,228 @@ public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
     this.keyspace = keyspace;
     this.table = table;
     this.batchSize = batchSize;
+    // prepared on first use, so constructing the dao doesn't require a connection
+    this.insert = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.insertInto(keyspace, table)
+        .value("video_id", bindMarker())
+        .value("added_date", bindMarker())
+        .value("description", bindMarker())
+        .value("title", bindMarker())
+        .value("user_id", bindMarker())));
+    this.retrieve = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.select().all().from(keyspace, table)
+        .where(eq("video_id", bindMarker()))));
+    this.insertByUser = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.insertInto(keyspace, table + "_by_user")
+        .value("user_id", bindMarker())
+        .value("added_date", bindMarker())
+        .value("video_id", bindMarker())
+        .value("description", bindMarker())
+        .value("title", bindMarker())));
+    this.retrieveByUser = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.select().all().from(keyspace, table + "_by_user")
+        .where(eq("user_id", bindMarker()))));
+    this.deleteByUser = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.delete().from(keyspace, table + "_by_user")
+        .where(eq("user_id", bindMarker()))
+        .and(eq("added_date", bindMarker()))
+        .and(eq("video_id", bindMarker()))));
+    this.insertLatest = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.insertInto(keyspace, "latest_" + table)
+        .value("yyyymmdd", bindMarker())
+        .value("added_date", bindMarker())
+        .value("video_id", bindMarker())
+        .value("description", bindMarker())
+        .value("title", bindMarker())
+        .value("user_id", bindMarker())));
+    this.retrieveLatest = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.select().all().from(keyspace, "latest_" + table)
+        .where(eq("yyyymmdd", bindMarker()))
+        .limit(bindMarker())));
+    this.retrieveLatestBefore = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.select().all().from(keyspace, "latest_" + table)
+        .where(eq("yyyymmdd", bindMarker()))
+        .and(lt(ImmutableList.of("added_date", "video_id"), ImmutableList.of(bindMarker(), bindMarker())))
+        .limit(bindMarker())));
+    this.deleteLatest = Suppliers.memoize(() -> PreparedStatements.prepare(session,
+      QueryBuilder.delete().from(keyspace, "latest_" + table)
+        .where(eq("yyyymmdd", bindMarker()))
+        .and(eq("added_date", bindMarker()))
+        .and(eq("video_id", bindMarker()))));
+  }
+
+  /**
+   *
+   * @param scanOptions the options used by {@link #onEvery(Consumer)}
+   * @return this instance
+   */
+  public DataStaxVideoDao setScanOptions(TableScanOptions scanOptions) {
+    this.scanOptions = scanOptions;
+    return this;
+  }
+
+  /**
+   *
+   * @param writeMode how {@link #save(Collection)} writes more than one video
+   * @return this instance
+   */
+  public DataStaxVideoDao setWriteMode(WriteMode writeMode) {
+    this.writeMode = writeMode;
+    return this;
+  }
+
+  /**
+   * Only applies to {@link WriteMode#PARTITIONED}.
+   *
+   * @param maximumWritesInFlight the maximum number of concurrent writes for one save, must be positive
+   * @return this instance
+   */
+  public DataStaxVideoDao setMaximumWritesInFlight(int maximumWritesInFlight) {
+    if (maximumWritesInFlight < 1) {
+      throw new IllegalArgumentException("maximumWritesInFlight must be positive, was " + maximumWritesInFlight);
+    }
+    this.maximumWritesInFlight = maximumWritesInFlight;
+    return this;
+  }
+
+  /**
+   *
+   * @param maximumReadsInFlight the maximum number of concurrent lookups for one {@link #retrieveAll(Collection)}, must be positive
+   * @return this instance
+   */
+  public DataStaxVideoDao setMaximumReadsInFlight(int maximumReadsInFlight) {
+    if (maximumReadsInFlight < 1) {
+      throw new IllegalArgumentException("maximumReadsInFlight must be positive, was " + maximumReadsInFlight);
+    }
+    this.maximumReadsInFlight = maximumReadsInFlight;
+    return this;
+  }
+
+  /**
+   *
+   * @param metrics the metrics statements and row mapping are recorded in, or null if they are not instrumented
+   * @return this instance
+   */
+  public DataStaxVideoDao setMetrics(DaoMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * Applies to {@link #retrieve(UUID)} and the other lookups by id, not to scans.
+   *
+   * @param consistencyLevel the consistency level of lookups, or null for the cluster's default
+   * @param timeout how long the driver waits for each host to answer a lookup, or null for the cluster's read timeout
+   * @return this instance
+   */
+  public DataStaxVideoDao setReadOptions(ConsistencyLevel consistencyLevel, Duration timeout) {
+    this.readConsistencyLevel = consistencyLevel;
+    this.readTimeout = timeout;
+    return this;
+  }
+
+  /**
+   *
+   * @param consistencyLevel the consistency level of writes, or null for the cluster's default
+   * @param timeout how long the driver waits for each host to answer a write, or null for the cluster's read timeout
+   * @return this instance
+   */
+  public DataStaxVideoDao setWriteOptions(ConsistencyLevel consistencyLevel, Duration timeout) {
+    this.writeConsistencyLevel = consistencyLevel;
+    this.writeTimeout = timeout;
+    return this;
+  }
+
+  /**
+   *
+   * @param latestDays how many days back {@link #retrieveLatest(String, int)} reads, including today, must be positive
+   * @param latestDaysInFlight the most days {@link #retrieveLatest(String, int)} reads concurrently, must be positive
+   * @return this instance
+   */
+  public DataStaxVideoDao setLatestOptions(int latestDays, int latestDaysInFlight) {
+    if (latestDays < 1 || latestDaysInFlight < 1) {
+      throw new IllegalArgumentException("latestDays and latestDaysInFlight must be positive, were " + latestDays + " and " + latestDaysInFlight);
+    }
+    this.latestDays = latestDays;
+    this.latestDaysInFlight = latestDaysInFlight;
+    return this;
+  }
+
+  /**
+   * Deleting moved rows costs a read before each save of a video whose id was provided and that
+   * sets its user or added date. The read isn't atomic with the write: if two saves of the same
+   * video race, both may read the same stored row, and the rows written by the first are left behind.
+   *
+   * @param deleteMovedRows true to delete a video's previous rows in the by user and latest tables
+   * when a save changes its user or added date
+   * @return this instance
+   */
+  public DataStaxVideoDao setDeleteMovedRows(boolean deleteMovedRows) {
+    this.deleteMovedRows = deleteMovedRows;
+    return this;
   }
 
   @Override
   public Collection<Video> save(Collection<Video> videos) {
-    List<Video> saved = new ArrayList();
+    return DriverFutures.getUninterruptibly(saveAsync(videos));
+  }
+
+  /**
+   * With {@link WriteMode#LOGGED_BATCH}, batches are executed one after another, each once the
+   * previous one completes. A batch only holds inserts into the videos table; each video's rows in
+   * the by user and latest tables are written once the batch is applied.
+   *
+   * @param videos the videos to save
+   * @return a future of the saved videos
+   */
+  @Override
+  public CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
     if(videos.size() == 1) {
       // don't batch if only one video
       Video video = videos.iterator().next();
-      final UUID uuid = video.getVideoId() == null ? UUIDs.timeBased() : video.getVideoId();
-      if(session.execute(insert(video.setVideoId(uuid), uuid)).wasApplied()) {
-        saved.add(video);
-      };
-    } else {
-      for (Iterator<List<Video>> iterator = Iterators.partition(videos.iterator(), batchSize);
-        iterator.hasNext(); ) {
-        List<Video> chunk = iterator.next();
-        if (!chunk.isEmpty()) {
-          BatchStatement batch = new BatchStatement();
-          for (Video v : chunk) {
-            // if no videoId present, generate a new timeuuid
-            final UUID uuid = getOrGenerateUUID(v);
-            batch.add(insert(v, uuid));
-          }
-          if(session.execute(batch).wasApplied()) {
+      boolean provided = video.getVideoId() != null;
+      getOrGenerateUUID(video);
+      prepareWrites();
+      return writePartition(ImmutableList.of(video), provided)
+        .thenApply(applied -> applied ? ImmutableList.of(video) : ImmutableList.of());
+    }
+    if (writeMode == WriteMode.PARTITIONED) {
+      return saveEach(videos).thenApply(SaveResult::getSaved);
+    }
+    // statements are prepared up front, callbacks run on driver I/O threads that mustn't block
+    prepareWrites();
+    List<List<Video>> chunks = new ArrayList<>();
+    List<BatchStatement> batches = new ArrayList<>();
+    List<Map<UUID, List<Video>>> chunkPartitions = new ArrayList<>();
+    Set<UUID> provided = new HashSet<>();
+    for (Iterator<List<Video>> iterator = Iterators.partition(videos.iterator(), batchSize);
+      iterator.hasNext(); ) {
+      List<Video> chunk = iterator.next();
+      BatchStatement batch = new BatchStatement();
+      Map<UUID, List<Video>> partitions = new LinkedHashMap<>();
+      for (Video v : chunk) {
+        if (v.getVideoId() != null) {
+          provided.add(v.getVideoId());
+        }
+        // if no videoId present, generate a new timeuuid
+        final UUID uuid = getOrGenerateUUID(v);
+        batch.add(insert(v, uuid));
+        partitions.computeIfAbsent(uuid, id -> new ArrayList<>()).add(v);
+      }
+      chunks.add(chunk);
+      batches.add(batch);
+      chunkPartitions.add(partitions);
+    }
+    List<Video> saved = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+    for (int i = 0; i < batches.size(); i++) {
+      List<Video> chunk = chunks.get(i);
+      BatchStatement batch = batches.get(i);
+      Map<UUID, List<Video>> partitions = chunkPartitions.get(i);
+      future = future
+        .thenCompose(previous -> writeBatch(batch, partitions, provided))
+        .thenAccept(applied -> {
+          if(applied) {
             saved.addAll(chunk);
           } else {
             logger.error("batch was not successfully applied during save (enable debug to see failed inserts)");
@@ -90,22 +383,399 @@ public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
                 .map(v -> v.getVideoId())
                 .collect(Collectors.toList()));
           }
-        }
+        });
+    }
+    return future.thenApply(done -> saved);
+  }
+
+  /**
+   * With {@link WriteMode#PARTITIONED}, videos are grouped by partition and each group is written
+   * as soon as one of the {@link #setMaximumWritesInFlight(int)} slots is free.
+   *
+   * @param videos the videos to save
+   * @return a future of the outcome for each video
+   */
+  @Override
+  public CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    if (writeMode != WriteMode.PARTITIONED) {
+      return VideoDao.super.saveEach(videos);
+    }
+    Map<UUID, List<Video>> partitions = new LinkedHashMap<>();
+    Set<UUID> provided = new HashSet<>();
+    for (Video v : videos) {
+      if (v.getVideoId() != null) {
+        provided.add(v.getVideoId());
       }
+      // if no videoId present, generate a new timeuuid
+      partitions.computeIfAbsent(getOrGenerateUUID(v), uuid -> new ArrayList<>()).add(v);
+    }
+    // prepare before the first callback, driver I/O threads mustn't block
+    prepareWrites();
+    SaveResult result = new SaveResult();
+    return DriverFutures.forEach(new ArrayList<>(partitions.values()), maximumWritesInFlight,
+      group -> writePartition(group, provided.contains(group.get(0).getVideoId()), result))
+      .thenApply(done -> result);
+  }
+
+  /**
+   * Prepare every statement a save may execute, so they can be bound on driver I/O threads.
+   */
+  private void prepareWrites() {
+    retrieve.get();
+    insert.get();
+    insertByUser.get();
+    insertLatest.get();
+    deleteByUser.get();
+    deleteLatest.get();
+  }
+
+  /**
+   *
+   * @param group the videos of a partition
+   * @param provided true if the videos' id was provided, rather than generated
+   * @param result where to record the outcome of each video
+   * @return a future completed once the outcome is recorded
+   */
+  private CompletableFuture<Void> writePartition(List<Video> group, boolean provided, SaveResult result) {
+    return writePartition(group, provided)
+      .handle((applied, error) -> {
+        if (error == null && applied) {
+          group.forEach(result::saved);
+        } else {
+          Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+            : error != null ? error : new IllegalStateException("write was not applied");
+          logger.debug("failed to save videoId {}", group.get(0).getVideoId(), cause);
+          group.forEach(v -> result.failed(v, cause));
+        }
+        return null;
+      });
+  }
+
+  /**
+   * Write the videos of a partition, and their rows in the by user and latest tables, concurrently.
+   * The stored video may be read first, see {@link #stored(UUID, boolean, List)}.
+   *
+   * @param group the videos of a partition
+   * @param provided true if the videos' id was provided, rather than generated
+   * @return a future of true if every write was applied; fails if any write failed
+   */
+  private CompletableFuture<Boolean> writePartition(List<Video> group, boolean provided) {
+    return stored(group.get(0).getVideoId(), provided, group)
+      .thenCompose(stored -> {
+        List<CompletableFuture<ResultSet>> writes = new ArrayList<>();
+        writes.add(write(partitionWrite(group), group.size()));
+        denormalized(stored, group).forEach(statement -> writes.add(write(statement, 1)));
+        return applied(writes);
+      });
+  }
+
+  /**
+   * Read the stored videos that may be moved (see {@link #stored(UUID, boolean, List)}), then execute the batch, then write the
+   * denormalized rows of each video (at most {@link #setMaximumWritesInFlight(int)} at a time).
+   *
+   * @param batch the inserts of the videos into the videos table
+   * @param partitions the videos of the batch by id
+   * @param provided the ids that were provided, rather than generated
+   * @return a future of true if every write was applied; fails if any write failed
+   */
+  private CompletableFuture<Boolean> writeBatch(BatchStatement batch, Map<UUID, List<Video>> partitions, Set<UUID> provided) {
+    Map<UUID, CompletableFuture<Video>> stored = new ConcurrentHashMap<>();
+    return DriverFutures.forEach(new ArrayList<>(partitions.keySet()), maximumReadsInFlight, videoId -> {
+      CompletableFuture<Video> read = stored(videoId, provided.contains(videoId), partitions.get(videoId));
+      stored.put(videoId, read);
+      return read;
+    })
+      .thenCompose(done -> write(batch, batch.size()))
+      .thenCompose(rs -> {
+        if (!rs.wasApplied()) {
+          return CompletableFuture.completedFuture(false);
+        }
+        List<Statement> statements = new ArrayList<>();
+        partitions.forEach((videoId, group) -> statements.addAll(denormalized(stored.get(videoId).join(), group)));
+        List<CompletableFuture<ResultSet>> writes = Collections.synchronizedList(new ArrayList<>());
+        return DriverFutures.forEach(statements, maximumWritesInFlight, statement -> {
+          CompletableFuture<ResultSet> write = write(statement, 1);
+          writes.add(write);
+          return write;
+        }).thenCompose(done -> applied(writes));
+      });
+  }
+
+  /**
+   *
+   * @param writes the writes
+   * @return a future of true if every write was applied; fails if any write failed
+   */
+  private static CompletableFuture<Boolean> applied(List<CompletableFuture<ResultSet>> writes) {
+    return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[writes.size()]))
+      .thenApply(done -> writes.stream().allMatch(write -> write.join().wasApplied()));
+  }
+
+  /**
+   *
+   * The stored video is only read if {@link #setDeleteMovedRows(boolean)} is enabled and its rows
+   * may move: the id was provided, and the save sets the user or added date.
+   *
+   * @param videoId the id of a video about to be saved
+   * @param provided false if the id was just generated, so there is nothing to read
+   * @param saved the videos about to be saved with the id
+   * @return a future of the stored video, or of null if there is none or it wasn't read
+   */
+  private CompletableFuture<Video> stored(UUID videoId, boolean provided, List<Video> saved) {
+    boolean mayMove = deleteMovedRows && provided
+      && saved.stream().anyMatch(v -> v.getUserId() != null || v.getAdded() != null);
+    return mayMove ? retrieveAsync(videoId) : CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   *
+   * @param statement the statement to execute
+   * @param rows the number of rows the statement inserts
+   * @return a future of the result, recorded in the metrics (if any) once it completes
+   */
+  private CompletableFuture<ResultSet> write(Statement statement, int rows) {
+    options(statement, writeConsistencyLevel, writeTimeout);
+    long started = System.nanoTime();
+    CompletableFuture<ResultSet> future = DriverFutures.toCompletableFuture(session.executeAsync(statement));
+    if (metrics == null) {
+      return future;
+    }
+    return future.whenComplete((rs, error) -> metrics.onWrite(rows, System.nanoTime() - started, rs, error));
+  }
+
+  /**
+   *
+   * @param statement the statement to execute
+   * @return a future of the result, recorded in the metrics (if any) once it completes
+   */
+  private CompletableFuture<ResultSet> read(Statement statement) {
+    // reads can safely be sent to another replica while the first is still working on them
+    options(statement, readConsistencyLevel, readTimeout).setIdempotent(true);
+    long started = System.nanoTime();
+    CompletableFuture<ResultSet> future = DriverFutures.toCompletableFuture(session.executeAsync(statement));
+    if (metrics == null) {
+      return future;
+    }
+    return future.whenComplete((rs, error) -> metrics.onRead(System.nanoTime() - started, rs, error));
+  }
+
+  /**
+   *
+   * @param statement the statement to configure
+   * @param consistencyLevel the consistency level, or null to leave it unset
+   * @param timeout the per host timeout, or null to leave it unset
+   * @return the statement
+   */
+  private static Statement options(Statement statement, ConsistencyLevel consistencyLevel, Duration timeout) {
+    if (consistencyLevel != null) {
+      statement.setConsistencyLevel(consistencyLevel);
+    }
+    if (timeout != null) {
+      statement.setReadTimeoutMillis((int) timeout.toMillis());
+    }
+    return statement;
+  }
+
+  /**
+   *
+   * @param partition videos with the same video_id
+   * @return a single insert, or an unlogged batch of the inserts if there is more than one video
+   */
+  private Statement partitionWrite(List<Video> partition) {
+    if (partition.size() == 1) {
+      return insert(partition.get(0), partition.get(0).getVideoId());
+    }
+    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+    partition.forEach(v -> batch.add(insert(v, v.getVideoId())));
+    return batch;
+  }
+
+  /**
+   * Writes only the patch's non-null fields to the video's row, after reading it to find its rows
+   * in the by user and latest tables, which are written with the patched video. If the patch changes
+   * the user or added date, the video's previous rows in those tables are deleted.
+   *
+   * @param patch the fields to change, with the target {@link Video#getVideoId()}
+   * @return the patched video, or null if there is no such video
+   */
+  @Override
+  public Video patch(Video patch) {
+    Video current = retrieve(patch.getVideoId());
+    if (current == null) {
+      return null;
+    }
+    Video patched = VideoDao.patched(current, patch);
+    List<CompletableFuture<ResultSet>> writes = new ArrayList<>();
+    writes.add(write(insert(patch, patch.getVideoId()), 1));
+    denormalized(current, ImmutableList.of(patch)).forEach(statement -> writes.add(write(statement, 1)));
+    if (!DriverFutures.getUninterruptibly(applied(writes))) {
+      throw new IllegalStateException("patch of videoId " + patch.getVideoId() + " was not applied");
     }
-    return saved;
+    return patched;
   }
 
   @Override
   public Video retrieve(UUID videoId) {
-    Statement select = QueryBuilder.select().all().from(keyspace, table)
-      .where(eq("video_id", videoId));
-    ResultSet rs = session.execute(select);
-    Row row = rs.one();
-    if(row != null) {
-      return mapRow(row);
+    return DriverFutures.getUninterruptibly(retrieveAsync(videoId));
+  }
+
+  @Override
+  public CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    return read(retrieve.get().bind(videoId))
+      .thenApply(rs -> {
+        // the first page has arrived, so this doesn't block
+        Row row = rs.one();
+        return row == null ? null : sampledMap(row);
+      });
+  }
+
+  /**
+   * A single partition read of the by user table; the cursor is the driver's paging state.
+   *
+   * @param userId the target {@link Video#getUserId()}
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, must be positive
+   * @return a page of the user's videos, most recently added first
+   */
+  @Override
+  public VideoPage retrieveByUser(UUID userId, String cursor, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive, was " + limit);
+    }
+    Statement statement = retrieveByUser.get().bind(userId);
+    statement.setFetchSize(limit);
+    if (cursor != null) {
+      try {
+        // also rejects the paging state of a different statement, e.g. another user's
+        statement.setPagingState(PagingState.fromString(cursor));
+      } catch (PagingStateException e) {
+        throw new IllegalArgumentException("invalid cursor " + cursor, e);
+      }
+    }
+    ResultSet rs = DriverFutures.getUninterruptibly(read(statement));
+    // only the rows of this page, iterating further would fetch the next
+    int available = rs.getAvailableWithoutFetching();
+    List<Video> videos = new ArrayList<>(available);
+    for (int i = 0; i < available; i++) {
+      videos.add(sampledMap(rs.one()));
+    }
+    PagingState next = rs.getExecutionInfo().getPagingState();
+    return new VideoPage()
+      .setVideos(videos)
+      .setNext(next == null ? null : next.toString());
+  }
+
+  /**
+   * Reads the days of the latest table newest first, until the page is full or
+   * {@link #setLatestOptions(int, int)} days back from today (UTC), each for as many videos as the
+   * page still needs. The first day is read alone, so a busy feed reads a single partition per page;
+   * each time the days read leave the page short, twice as many are read concurrently next, up to
+   * the configured days in flight. The cursor is the added date and video id of the last video of
+   * the previous page, so videos added since don't shift the pages.
+   *
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, must be positive
+   * @return a page of the most recently added videos, most recent first
+   */
+  @Override
+  public VideoPage retrieveLatest(String cursor, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive, was " + limit);
+    }
+    Video last = cursor == null ? null : LatestCursor.decode(cursor);
+    LocalDate oldest = LocalDate.now(ZoneOffset.UTC).minusDays(latestDays - 1);
+    LocalDate day = last == null ? LocalDate.now(ZoneOffset.UTC) : LocalDate.from(last.getAdded().atZone(ZoneOffset.UTC));
+    List<Video> videos = new ArrayList<>(limit);
+    int daysInFlight = 1;
+    while (videos.size() < limit && !day.isBefore(oldest)) {
+      int remaining = limit - videos.size();
+      List<CompletableFuture<ResultSet>> days = new ArrayList<>();
+      for (int i = 0; i < daysInFlight && !day.isBefore(oldest); i++, day = day.minusDays(1)) {
+        String yyyymmdd = day.format(DateTimeFormatter.BASIC_ISO_DATE);
+        // only the day of the cursor has videos at or after it
+        days.add(read(last != null && yyyymmdd.equals(day(last.getAdded()))
+          ? retrieveLatestBefore.get().bind(yyyymmdd, last.getAdded(), last.getVideoId(), remaining)
+          : retrieveLatest.get().bind(yyyymmdd, remaining)));
+      }
+      for (CompletableFuture<ResultSet> read : days) {
+        ResultSet rs = DriverFutures.getUninterruptibly(read);
+        // the limit is a single page, so this doesn't fetch
+        for (Row row : rs) {
+          if (videos.size() < limit) {
+            videos.add(sampledMap(row));
+          }
+        }
+      }
+      // the days read so far were sparse, so the next ones probably are too
+      daysInFlight = Math.min(2 * daysInFlight, latestDaysInFlight);
     }
-    return null;
+    boolean more = videos.size() == limit && !videos.isEmpty();
+    return new VideoPage()
+      .setVideos(videos)
+      .setNext(more ? LatestCursor.encode(videos.get(videos.size() - 1)) : null);
+  }
+
+  /**
+   * Ids are looked up concurrently, at most {@link #setMaximumReadsInFlight(int)} at a time, each
+   * routed to a replica of its partition.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @return the matching {@link Video}s by id, in the order of the ids; ids without a video are omitted
+   */
+  @Override
+  public Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    Map<UUID, CompletableFuture<Video>> lookups = lookup(videoIds, lookup -> { });
+    Map<UUID, Video> videos = new LinkedHashMap<>();
+    lookups.forEach((videoId, lookup) -> {
+      Video video = DriverFutures.getUninterruptibly(lookup);
+      if (video != null) {
+        videos.put(videoId, video);
+      }
+    });
+    return videos;
+  }
+
+  /**
+   * Ids are looked up concurrently, at most {@link #setMaximumReadsInFlight(int)} at a time, each
+   * routed to a replica of its partition.
+   *
+   * @param videoIds the target {@link Video#getVideoId()}s
+   * @param consumer receives each matching {@link Video}, in the order the lookups complete
+   */
+  @Override
+  public void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    BlockingQueue<CompletableFuture<Video>> completed = new LinkedBlockingQueue<>();
+    int lookups = lookup(videoIds, completed::add).size();
+    for (int i = 0; i < lookups; i++) {
+      Video video = DriverFutures.getUninterruptibly(Uninterruptibles.takeUninterruptibly(completed));
+      if (video != null) {
+        consumer.accept(video);
+      }
+    }
+  }
+
+  /**
+   *
+   * @param videoIds the ids to look up
+   * @param onComplete receives each lookup once it completes; must not block
+   * @return a lookup for each distinct id, in the order of the ids
+   */
+  private Map<UUID, CompletableFuture<Video>> lookup(Collection<UUID> videoIds, Consumer<CompletableFuture<Video>> onComplete) {
+    Map<UUID, CompletableFuture<Video>> lookups = new LinkedHashMap<>();
+    videoIds.forEach(videoId -> lookups.computeIfAbsent(videoId, id -> new CompletableFuture<>()));
+    // prepare before the first callback, driver I/O threads mustn't block
+    retrieve.get();
+    DriverFutures.forEach(new ArrayList<>(lookups.keySet()), maximumReadsInFlight, videoId ->
+      retrieveAsync(videoId).whenComplete((video, error) -> {
+        CompletableFuture<Video> lookup = lookups.get(videoId);
+        if (error != null) {
+          lookup.completeExceptionally(error);
+        } else {
+          lookup.complete(video);
+        }
+        onComplete.accept(lookup);
+      }));
+    return lookups;
   }
 
   @Override
@@ -113,19 +783,152 @@ public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
     tableScan(this.session, function);
   }
 
+  @Override
+  public Stream<Video> stream() {
+    return stream(this.session);
+  }
+
+  /**
+   * WARNING: this is an expensive operation.
+   *
+   * Same as {@link #onEvery(Consumer)}, but progress is recorded in the provided checkpoint so that
+   * a failed or interrupted run can resume where it left off; the function may see a video more than once.
+   *
+   * @param function the consumer to run on each, should be idempotent
+   * @param checkpoint where to record progress
+   */
+  public void onEvery(Consumer<Video> function, ScanCheckpoint checkpoint) {
+    tableScan(this.session, function, checkpoint);
+  }
+
+  @Override
+  public void onEveryVideoId(UuidSink sink) {
+    projection(Collections.emptyList()).tableScan(this.session, videoIdConsumer(sink));
+  }
+
+  /**
+   * WARNING: this is an expensive operation.
+   *
+   * Same as {@link #onEveryVideoId(UuidSink)}, but progress is recorded in the provided checkpoint;
+   * see {@link #onEvery(Consumer, ScanCheckpoint)}.
+   *
+   * @param sink the sink to receive each id, should be idempotent
+   * @param checkpoint where to record progress
+   */
+  public void onEveryVideoId(UuidSink sink, ScanCheckpoint checkpoint) {
+    projection(Collections.emptyList()).tableScan(this.session, videoIdConsumer(sink), checkpoint);
+  }
+
+  /**
+   *
+   * @param sink the sink to receive each id
+   * @return a consumer of {@link #projection(List)} rows that reads the video_id bytes directly, rather than
+   * through {@link Row#getUUID(String)}
+   */
+  private Consumer<Row> videoIdConsumer(UuidSink sink) {
+    return row -> {
+      // column 0 is the token, column 1 is video_id
+      ByteBuffer videoId = row.getBytesUnsafe(1);
+      sink.accept(videoId.getLong(videoId.position()), videoId.getLong(videoId.position() + 8));
+    };
+  }
+
   /**
    *
    * @param v the video to store
    * @param uuid the value to use for the video_id column
-   * @return an INSERT statement to store the video
+   * @return the prepared INSERT statement, bound to store the video; its routing key is the video_id
    */
   protected Statement insert(Video v, UUID uuid) {
-    return QueryBuilder.insertInto(keyspace, table)
-      .value("video_id", uuid)
-      .value("added_date", v.getAdded())
-      .value("description", v.getDescription())
-      .value("title", v.getTitle())
-      .value("user_id", v.getUserId());
+    return bind(insert.get(), uuid, v.getAdded(), v.getDescription(), v.getTitle(), v.getUserId());
+  }
+
+  /**
+   *
+   * @param v the video to store, with a video_id, user_id and added date
+   * @return the prepared INSERT statement for the by user table, bound to store the video; its routing key is the user_id
+   */
+  protected Statement insertByUser(Video v) {
+    return bind(insertByUser.get(), v.getUserId(), v.getAdded(), v.getVideoId(), v.getDescription(), v.getTitle());
+  }
+
+  /**
+   *
+   * @param v the video to store, with a video_id, added date and user_id
+   * @return the prepared INSERT statement for the latest table, bound to store the video; its routing key is the day
+   */
+  protected Statement insertLatest(Video v) {
+    return bind(insertLatest.get(), day(v.getAdded()), v.getAdded(), v.getVideoId(), v.getDescription(), v.getTitle(), v.getUserId());
+  }
+
+  /**
+   * Binding null writes a tombstone, which reads then have to skip until compaction purges it;
+   * an unset value isn't written at all.
+   *
+   * @param prepared the statement to bind
+   * @param values the values of its bind markers, in order
+   * @return the bound statement, with null values left unset
+   */
+  private static BoundStatement bind(PreparedStatement prepared, Object... values) {
+    BoundStatement bound = prepared.bind(values);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        bound.unset(i);
+      }
+    }
+    return bound;
+  }
+
+  /**
+   *
+   * @param v the video to store, with a video_id
+   * @return the inserts of the video's rows in the by user and latest tables, if it has the columns they are keyed by
+   */
+  private List<Statement> denormalized(Video v) {
+    if (v.getAdded() == null) {
+      return Collections.emptyList();
+    }
+    if (v.getUserId() == null) {
+      return ImmutableList.of(insertLatest(v));
+    }
+    return ImmutableList.of(insertByUser(v), insertLatest(v));
+  }
+
+  /**
+   * Null fields of a save keep the stored value, so the rows written are those of the stored video
+   * with each saved video applied in turn.
+   *
+   * @param stored the stored video, or null if there is none
+   * @param saved the videos being saved over it, in order
+   * @return deletes of the stored video's rows in the by user and latest tables that the save moves,
+   * followed by the inserts of the resulting video's rows
+   */
+  private List<Statement> denormalized(Video stored, List<Video> saved) {
+    Video result = stored;
+    for (Video v : saved) {
+      result = result == null ? v : VideoDao.patched(result, v);
+    }
+    List<Statement> statements = new ArrayList<>();
+    if (stored != null && stored.getAdded() != null) {
+      boolean addedChanged = !stored.getAdded().equals(result.getAdded());
+      if (stored.getUserId() != null && (addedChanged || !stored.getUserId().equals(result.getUserId()))) {
+        statements.add(deleteByUser.get().bind(stored.getUserId(), stored.getAdded(), stored.getVideoId()));
+      }
+      if (addedChanged) {
+        statements.add(deleteLatest.get().bind(day(stored.getAdded()), stored.getAdded(), stored.getVideoId()));
+      }
+    }
+    statements.addAll(denormalized(result));
+    return statements;
+  }
+
+  /**
+   *
+   * @param added a {@link Video#getAdded()}
+   * @return the partition of the latest table, the UTC day formatted as yyyyMMdd
+   */
+  static String day(Instant added) {
+    return LocalDate.from(added.atZone(ZoneOffset.UTC)).format(DateTimeFormatter.BASIC_ISO_DATE);
   }
 
   /**
@@ -156,11 +959,41 @@ public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
     return ImmutableList.of("video_id");
   }
 
+  /**
+   * Rows mapped by scans aren't timed, since timing them would add a contended metric update per
+   * row of the table.
+   */
   @Override
   public Video mapRow(Row row) {
+    return map(row);
+  }
+
+  /**
+   * Map a row read by a lookup, timing one in {@link #MAP_ROW_SAMPLE_RATE} rows.
+   *
+   * @param row a row of the table
+   * @return the video stored in the row
+   */
+  private Video sampledMap(Row row) {
+    if (metrics == null || ThreadLocalRandom.current().nextInt(MAP_ROW_SAMPLE_RATE) != 0) {
+      return map(row);
+    }
+    long started = System.nanoTime();
+    Video video = map(row);
+    metrics.onMapRow(System.nanoTime() - started);
+    return video;
+  }
+
+  /**
+   *
+   * @param row a row of the table
+   * @return the video stored in the row
+   */
+  private Video map(Row row) {
+    Date added = row.getTimestamp("added_date");
     return new Video()
       .setVideoId(row.getUUID("video_id"))
-      .setAdded(row.getTimestamp("added_date").toInstant())
+      .setAdded(added == null ? null : added.toInstant())
       .setDescription(row.getString("description"))
       .setTitle(row.getString("title"))
       .setUserId(row.getUUID("user_id"));
@@ -171,6 +1004,11 @@ public class DataStaxVideoDao implements VideoDao, FullTableScan<Video> {
     return this.keyspace;
   }
 
+  @Override
+  public TableScanOptions scanOptions() {
+    return this.scanOptions;
+  }
+
   @Override
   public List<String> columns() {
     return ImmutableList.of("added_date", "description", "title", "user_id");
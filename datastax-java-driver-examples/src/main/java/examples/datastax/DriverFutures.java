@@ -0,0 +1,126 @@
+package examples.datastax;
+
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.DriverInternalError;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Adapts the driver's {@link ListenableFuture}s to {@link CompletableFuture}s, and bounds the
+ * number of requests a single operation has in flight.
+ *
+ * Callbacks run on the driver's I/O threads, so stages chained on these futures must not block.
+ *
+ * @author https://github.com/nblair
+ */
+final class DriverFutures {
+
+  private DriverFutures() {
+  }
+
+  /**
+   *
+   * @param future a driver future, e.g. from {@link com.datastax.driver.core.Session#executeAsync(com.datastax.driver.core.Statement)}
+   * @param <T> the type of the result
+   * @return a future completed with the driver future's result or failure
+   */
+  static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future) {
+    CompletableFuture<T> completable = new CompletableFuture<>();
+    Futures.addCallback(future, new FutureCallback<T>() {
+      @Override
+      public void onSuccess(T result) {
+        completable.complete(result);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        completable.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return completable;
+  }
+
+  /**
+   * Start a task for each item, with at most maximumInFlight tasks incomplete at a time; as each
+   * task completes, the next is started from its callback.
+   *
+   * @param items the items to process, in the order tasks are started
+   * @param maximumInFlight the maximum number of incomplete tasks, must be positive
+   * @param task starts the asynchronous work for an item; must record its own failures, and must not block
+   * @param <T> the type of the items
+   * @return a future completed once every task has completed, normally or not
+   */
+  static <T> CompletableFuture<Void> forEach(List<T> items, int maximumInFlight, Function<? super T, CompletableFuture<?>> task) {
+    AtomicInteger next = new AtomicInteger();
+    List<CompletableFuture<Void>> slots = new ArrayList<>();
+    for (int i = 0; i < Math.min(maximumInFlight, items.size()); i++) {
+      CompletableFuture<Void> slot = new CompletableFuture<>();
+      startNext(items, next, task, slot);
+      slots.add(slot);
+    }
+    return CompletableFuture.allOf(slots.toArray(new CompletableFuture<?>[slots.size()]));
+  }
+
+  /**
+   * Start unclaimed tasks one at a time, until one is still in flight; it starts the next from its
+   * callback. Tasks that complete immediately are followed in this loop rather than in nested
+   * callbacks, so the stack doesn't grow with the number of items.
+   *
+   * @param items the items to process
+   * @param next the index of the next unclaimed item
+   * @param task starts the asynchronous work for an item
+   * @param slot completed once no items are left, or exceptionally if starting a task throws
+   * @param <T> the type of the items
+   */
+  private static <T> void startNext(List<T> items, AtomicInteger next, Function<? super T, CompletableFuture<?>> task,
+    CompletableFuture<Void> slot) {
+    for (int i = next.getAndIncrement(); i < items.size(); i = next.getAndIncrement()) {
+      CompletableFuture<?> started;
+      try {
+        started = task.apply(items.get(i));
+      } catch (RuntimeException e) {
+        slot.completeExceptionally(e);
+        return;
+      }
+      if (!started.isDone()) {
+        started.whenComplete((result, error) -> startNext(items, next, task, slot));
+        return;
+      }
+    }
+    slot.complete(null);
+  }
+
+  /**
+   * Wait for the future, and rethrow its failure the way the driver's synchronous methods do.
+   *
+   * @param future the future to wait for
+   * @param <T> the type of the result
+   * @return the result of the future
+   * @throws DriverException a copy of the driver's exception, with the caller's stack trace
+   */
+  static <T> T getUninterruptibly(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DriverException) {
+        throw ((DriverException) cause).copy();
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new DriverInternalError("unexpected exception", cause);
+    }
+  }
+}
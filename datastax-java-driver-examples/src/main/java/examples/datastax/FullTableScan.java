@@ -1,18 +1,28 @@
 package examples.datastax;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
 
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Mixin style interface to provide the boiler plate around a full Cassandra table scan using the
@@ -57,6 +67,26 @@ public interface FullTableScan<T> {
     return Collections.emptyList();
   }
 
+  /**
+   * Tables with clustering columns hold many rows per partition, and a page can end partway
+   * through a partition; the scan then continues within that partition (after the clustering
+   * position of the last row) before moving on to the next token.
+   *
+   * @return the names of the clustering columns, in clustering order; empty if each partition holds a single row
+   */
+  default List<String> clusteringColumns() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Mixed (some ASC, some DESC) clustering orders are not supported.
+   *
+   * @return true if the table is declared "WITH CLUSTERING ORDER BY (... DESC)"
+   */
+  default boolean clusteringDescending() {
+    return false;
+  }
+
   /**
    *
    * @return the number of rows to retrieve at each iteration
@@ -72,6 +102,15 @@ public interface FullTableScan<T> {
   default ConsistencyLevel consistencyLevel() {
     return ConsistencyLevel.ONE;
   }
+
+  /**
+   *
+   * @return the options controlling how {@link #tableScan(Session, Consumer)} divides up the ring
+   */
+  default TableScanOptions scanOptions() {
+    return new TableScanOptions();
+  }
+
   /**
    *
    * @return a string representing the "token(...)" column
@@ -98,39 +137,203 @@ public interface FullTableScan<T> {
     return "system." + tokenColumn();
   }
 
+  /**
+   *
+   * @param columns the columns to select in addition to the primary key
+   * @return a scan of the same table that selects only the primary key and the provided columns,
+   * and delivers each {@link Row} without mapping it
+   */
+  default FullTableScan<Row> projection(List<String> columns) {
+    return new ProjectionScan(this, columns);
+  }
+
   /**
    * Perform a full table scan, executing the provided consumer on each row.
    *
+   * If {@link TableScanOptions#getParallelism()} is greater than 1, the consumer is invoked
+   * concurrently from multiple threads.
+   *
    * @param session an established C* session
    * @param consumer the consumer to act on each row
    */
   default void tableScan(Session session, Consumer<T> consumer) {
-    // this is the minimum possible value returned by the token function (given Murmur3 partitioner)
-    Long currentToken = -9223372036854775808L;
-    Long maxToken = currentToken;
+    new TableScanner<>(this, session, scanOptions()).scan(consumer);
+  }
+
+  /**
+   * Perform a full table scan, executing the provided consumer on each row, and recording progress
+   * in the provided checkpoint. If the checkpoint file exists, the scan resumes from it; it is
+   * deleted once the scan completes.
+   *
+   * @param session an established C* session
+   * @param consumer the consumer to act on each row, should be idempotent (see {@link ScanCheckpoint})
+   * @param checkpoint where to record progress
+   */
+  default void tableScan(Session session, Consumer<T> consumer, ScanCheckpoint checkpoint) {
+    new TableScanner<>(this, session, scanOptions(), checkpoint).scan(consumer);
+  }
+
+  /**
+   * Lazily scan the table. Pages are only fetched as the stream consumes rows, so short-circuiting
+   * operations like {@link Stream#limit(long)} or {@link Stream#findAny()} stop early.
+   * A {@link Stream#parallel()} stream divides the remaining ring between the workers of the
+   * common ForkJoin pool; the stream is unordered.
+   *
+   * @param session an established C* session
+   * @return a stream of every row, mapped with {@link #mapRow(Row)}
+   */
+  default Stream<T> stream(Session session) {
+    return StreamSupport.stream(new TableScanSpliterator<>(this, session, ScanRange.fullRing()), false);
+  }
+
+  /**
+   * Scan the rows within a single {@link ScanRange}, executing the provided consumer on each row.
+   * Stops at the first empty page, or when a row falls beyond {@link ScanRange#getEnd()}.
+   *
+   * @param session an established C* session
+   * @param range the range of tokens to scan
+   * @param consumer the consumer to act on each row
+   */
+  default void tableScan(Session session, ScanRange range, Consumer<T> consumer) {
+    tableScan(session, range, consumer, scanOptions().pageController(limit()));
+  }
 
-    boolean maxTokenReached = false;
-    while (!maxTokenReached) {
-      ResultSet resultSet = session.execute(statement(currentToken));
+  /**
+   * Scan the rows within a single {@link ScanRange}, executing the provided consumer on each row.
+   * Stops at the first empty page, or when a row falls beyond {@link ScanRange#getEnd()}.
+   *
+   * @param session an established C* session
+   * @param range the range of tokens to scan
+   * @param consumer the consumer to act on each row
+   * @param pages decides the size of each page, and is told how each page performed
+   */
+  default void tableScan(Session session, ScanRange range, Consumer<T> consumer, PageController pages) {
+    if (scanOptions().isDriverPaging()) {
+      pagedTableScan(session, range, consumer, pages);
+      return;
+    }
+    PreparedStatement prepared = scanOptions().isPreparedStatements() ? preparedSelect(session, false) : null;
+    boolean rangeExhausted = false;
+    while (!rangeExhausted && !range.isComplete()) {
+      int pageSize = pages.pageSize();
+      long started = System.nanoTime();
+      ResultSet resultSet = session.execute(statement(range, pageSize, prepared));
+      long latency = System.nanoTime() - started;
       Iterator<Row> rows = resultSet.iterator();
 
-      if ( !rows.hasNext()){
-        maxTokenReached = true;
-      } else {
-        while (rows.hasNext()) {
-          Row row = rows.next();
-          consumer.accept(mapRow(row));
-
-          if (!rows.hasNext()) {
-            // reached the end of the result set, snag the token value
-            currentToken = row.getLong(keyspacePrefixedTokenColumn());
-            if (currentToken > maxToken) {
-              maxToken = currentToken;
-              currentToken++;
-            }
-          }
+      if (!rows.hasNext()) {
+        rangeExhausted = true;
+      }
+      int count = 0;
+      long bytes = 0L;
+      Row last = null;
+      while (rows.hasNext()) {
+        Row row = rows.next();
+        if (!range.claim(row.getLong(keyspacePrefixedTokenColumn()))) {
+          // the range was split (or stopped) while this page was in flight
+          rangeExhausted = true;
+          break;
         }
+        if (pages.measuresBytes()) {
+          bytes += PageController.bytes(row);
+        }
+        count++;
+        last = row;
+        consumer.accept(mapRow(row));
+      }
+      pages.onPage(count, bytes, latency);
+      if (!rangeExhausted && count == pageSize && !clusteringColumns().isEmpty()) {
+        // the next page starts at the following token, so finish the last partition first
+        rangeExhausted = !partitionScan(session, range, consumer, pages, last);
+      }
+    }
+  }
+
+  /**
+   * Scan the rest of the partition containing the provided row, after its clustering position.
+   *
+   * @param session an established C* session
+   * @param range the range of tokens being scanned
+   * @param consumer the consumer to act on each row
+   * @param pages decides the size of each page, and is told how each page performed
+   * @param last the last row consumed from the partition
+   * @return true if the partition was finished; false if the range was stopped
+   */
+  default boolean partitionScan(Session session, ScanRange range, Consumer<T> consumer, PageController pages, Row last) {
+    PreparedStatement prepared = scanOptions().isPreparedStatements() ? preparedPartitionSelect(session) : null;
+    int count;
+    int pageSize;
+    do {
+      pageSize = pages.pageSize();
+      long started = System.nanoTime();
+      ResultSet resultSet = session.execute(partitionStatement(range, last, pageSize, prepared));
+      long latency = System.nanoTime() - started;
+      count = 0;
+      long bytes = 0L;
+      for (Row row : resultSet) {
+        if (!range.claim(row.getLong(keyspacePrefixedTokenColumn()))) {
+          return false;
+        }
+        if (pages.measuresBytes()) {
+          bytes += PageController.bytes(row);
+        }
+        count++;
+        last = row;
+        consumer.accept(mapRow(row));
+      }
+      pages.onPage(count, bytes, latency);
+    } while (count == pageSize);
+    return true;
+  }
+
+  /**
+   * Scan the rows within a single {@link ScanRange} using one statement and the driver's paging
+   * state. While the consumer works through the current page, the next
+   * {@link TableScanOptions#getPrefetchPages()} pages are requested asynchronously.
+   *
+   * The fetch size is fixed for the life of the statement, so the {@link PageController} is only
+   * consulted once per range. It is told about every page, but only the latency of the first page
+   * (the rest are fetched in the background) is known.
+   *
+   * @param session an established C* session
+   * @param range the range of tokens to scan
+   * @param consumer the consumer to act on each row
+   * @param pages decides the fetch size
+   */
+  default void pagedTableScan(Session session, ScanRange range, Consumer<T> consumer, PageController pages) {
+    int fetchSize = pages.pageSize();
+    PreparedStatement prepared = scanOptions().isPreparedStatements() ? preparedSelect(session, true) : null;
+    long started = System.nanoTime();
+    ResultSet resultSet = session.execute(pagedStatement(range, fetchSize, prepared));
+    long latency = System.nanoTime() - started;
+    int prefetchThreshold = scanOptions().getPrefetchPages() * fetchSize;
+    int pageRows = resultSet.getAvailableWithoutFetching();
+    int count = 0;
+    long bytes = 0L;
+    for (Row row : resultSet) {
+      if (resultSet.getAvailableWithoutFetching() < prefetchThreshold && !resultSet.isFullyFetched()) {
+        // returns the in flight future if a fetch has already been requested
+        resultSet.fetchMoreResults();
+      }
+      if (!range.claim(row.getLong(keyspacePrefixedTokenColumn()))) {
+        // the range was split (or stopped) while pages were in flight
+        break;
+      }
+      if (pages.measuresBytes()) {
+        bytes += PageController.bytes(row);
       }
+      consumer.accept(mapRow(row));
+      if (++count == pageRows) {
+        pages.onPage(count, bytes, latency);
+        // later pages are fetched in the background, their latency is unknown
+        latency = -1L;
+        pageRows = fetchSize;
+        count = 0;
+        bytes = 0L;
+      }
+    }
+    if (count > 0) {
+      pages.onPage(count, bytes, latency);
     }
   }
 
@@ -140,16 +343,198 @@ public interface FullTableScan<T> {
    * @return a statement
    */
   default Statement statement(Long currentTokenValue) {
+    return statement(new ScanRange(currentTokenValue, ScanRange.MAXIMUM_TOKEN));
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @return a statement returning at most {@link #limit()} rows
+   */
+  default Statement statement(ScanRange range) {
+    return statement(range, limit());
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @param pageSize the maximum number of rows to return
+   * @return a statement returning at most pageSize rows in a single page, routed to {@link ScanRange#getReplica()} if set
+   */
+  default Statement statement(ScanRange range, int pageSize) {
+    return RoutedStatement.route(select(range)
+      .limit(pageSize)
+      .setFetchSize(pageSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @param pageSize the maximum number of rows to return
+   * @param prepared the statement from {@link #preparedSelect(Session, boolean)} (not paged), or null to
+   * build a new statement
+   * @return a statement returning at most pageSize rows in a single page, routed to {@link ScanRange#getReplica()} if set
+   */
+  default Statement statement(ScanRange range, int pageSize, PreparedStatement prepared) {
+    if (prepared == null) {
+      return statement(range, pageSize);
+    }
+    return RoutedStatement.route(prepared.bind(range.getPosition(), range.getEnd(), pageSize)
+      .setFetchSize(pageSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @return a statement for the whole range, paged by the driver {@link #limit()} rows at a time
+   */
+  default Statement pagedStatement(ScanRange range) {
+    return pagedStatement(range, limit());
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @param fetchSize the number of rows per page
+   * @return a statement for the whole range, paged by the driver fetchSize rows at a time, routed to
+   * {@link ScanRange#getReplica()} if set
+   */
+  default Statement pagedStatement(ScanRange range, int fetchSize) {
+    return RoutedStatement.route(select(range)
+      .setFetchSize(fetchSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @param fetchSize the number of rows per page
+   * @param prepared the statement from {@link #preparedSelect(Session, boolean)} (paged), or null to
+   * build a new statement
+   * @return a statement for the whole range, paged by the driver fetchSize rows at a time, routed to
+   * {@link ScanRange#getReplica()} if set
+   */
+  default Statement pagedStatement(ScanRange range, int fetchSize, PreparedStatement prepared) {
+    if (prepared == null) {
+      return pagedStatement(range, fetchSize);
+    }
+    return RoutedStatement.route(prepared.bind(range.getPosition(), range.getEnd())
+      .setFetchSize(fetchSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   *
+   * @param range the range of tokens being scanned
+   * @param last the last row consumed, must include the partition key and {@link #clusteringColumns()}
+   * @param pageSize the maximum number of rows to return
+   * @return a statement returning at most pageSize of the rows that follow the last row within its
+   * partition, routed to {@link ScanRange#getReplica()} if set
+   */
+  default Statement partitionStatement(ScanRange range, Row last, int pageSize) {
+    Select.Where where = selection()
+      .from(keyspace(), table())
+      .where();
+    partitionKeys().forEach(k -> where.and(eq(k, last.getObject(k))));
+    List<Object> position = clusteringColumns().stream()
+      .map(last::getObject)
+      .collect(Collectors.toList());
+    where.and(clusteringDescending() ? lt(clusteringColumns(), position) : gt(clusteringColumns(), position));
+
+    return RoutedStatement.route(where
+      .limit(pageSize)
+      .setFetchSize(pageSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   *
+   * @param range the range of tokens being scanned
+   * @param last the last row consumed, must include the partition key and {@link #clusteringColumns()}
+   * @param pageSize the maximum number of rows to return
+   * @param prepared the statement from {@link #preparedPartitionSelect(Session)}, or null to build a new statement
+   * @return a statement returning at most pageSize of the rows that follow the last row within its
+   * partition, routed to {@link ScanRange#getReplica()} if set
+   */
+  default Statement partitionStatement(ScanRange range, Row last, int pageSize, PreparedStatement prepared) {
+    if (prepared == null) {
+      return partitionStatement(range, last, pageSize);
+    }
+    List<Object> values = new ArrayList<>();
+    partitionKeys().forEach(k -> values.add(last.getObject(k)));
+    clusteringColumns().forEach(c -> values.add(last.getObject(c)));
+    values.add(pageSize);
+    return RoutedStatement.route(prepared.bind(values.toArray())
+      .setFetchSize(pageSize)
+      .setConsistencyLevel(consistencyLevel()), range.getReplica());
+  }
+
+  /**
+   * The token range query with bind markers for the start and end tokens, and for the limit
+   * unless paged, prepared once per session.
+   *
+   * @param session an established C* session
+   * @param paged true for the statement used with driver paging, which has no limit
+   * @return the prepared range query
+   */
+  default PreparedStatement preparedSelect(Session session, boolean paged) {
+    Select.Where where = selection()
+      .from(keyspace(), table())
+      .where(gte(tokenColumn(), bindMarker()))
+      .and(lte(tokenColumn(), bindMarker()));
+    // prepared statements are shared by every scan with the same query, so the consistency level
+    // is also set on each bound statement
+    where.setConsistencyLevel(consistencyLevel());
+    return PreparedStatements.prepare(session, paged ? where : where.limit(bindMarker()));
+  }
+
+  /**
+   * The query for the rest of a partition, with bind markers for each partition key, each
+   * clustering column, and the limit, prepared once per session.
+   *
+   * @param session an established C* session
+   * @return the prepared partition query
+   */
+  default PreparedStatement preparedPartitionSelect(Session session) {
+    Select.Where where = selection()
+      .from(keyspace(), table())
+      .where();
+    partitionKeys().forEach(k -> where.and(eq(k, bindMarker())));
+    List<Object> position = clusteringColumns().stream()
+      .map(c -> bindMarker())
+      .collect(Collectors.toList());
+    where.and(clusteringDescending() ? lt(clusteringColumns(), position) : gt(clusteringColumns(), position));
+    where.setConsistencyLevel(consistencyLevel());
+    return PreparedStatements.prepare(session, where.limit(bindMarker()));
+  }
+
+  /**
+   *
+   * @param range the range of tokens to select, starting from {@link ScanRange#getPosition()}
+   * @return the token column, partition keys, clustering columns, and {@link #columns()} for the range
+   */
+  default Select.Where select(ScanRange range) {
+    return selection()
+      .from(keyspace(), table())
+      .where(gte(tokenColumn(), range.getPosition()))
+      .and(lte(tokenColumn(), range.getEnd()));
+  }
+
+  /**
+   *
+   * @return a selection of the token column, partition keys, clustering columns, and {@link #columns()}
+   */
+  default Select.Selection selection() {
     Select.Selection select = QueryBuilder.select()
       .column(tokenColumn());
 
     partitionKeys().forEach(k -> select.column(k));
-    columns().forEach(c -> select.column(c));
-
-    return select
-      .from(keyspace(), table())
-      .where(gte(tokenColumn(), currentTokenValue))
-      .limit(limit())
-      .setConsistencyLevel(consistencyLevel());
+    clusteringColumns().forEach(c -> select.column(c));
+    columns().stream()
+      .filter(c -> !clusteringColumns().contains(c))
+      .forEach(c -> select.column(c));
+    return select;
   }
 }
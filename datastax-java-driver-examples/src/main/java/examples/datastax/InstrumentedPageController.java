@@ -0,0 +1,50 @@
+package examples.datastax;
+
+/**
+ * {@link PageController} that also reports each page to a {@link ScanThrottle} and {@link ScanMetrics}.
+ *
+ * @author https://github.com/nblair
+ */
+class InstrumentedPageController implements PageController {
+
+  private final PageController delegate;
+  private final ScanThrottle throttle;
+  private final ScanMetrics metrics;
+
+  /**
+   *
+   * @param delegate decides the size of each page
+   * @param throttle the throttle to wait on after each page, or null
+   * @param metrics the metrics to record each page in, or null
+   */
+  InstrumentedPageController(PageController delegate, ScanThrottle throttle, ScanMetrics metrics) {
+    this.delegate = delegate;
+    this.throttle = throttle;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public int pageSize() {
+    return delegate.pageSize();
+  }
+
+  @Override
+  public boolean measuresBytes() {
+    return metrics != null || delegate.measuresBytes();
+  }
+
+  @Override
+  public void onPage(int rows, long bytes, long latencyNanos) {
+    delegate.onPage(rows, bytes, latencyNanos);
+    if (metrics != null) {
+      metrics.onPage(rows, bytes, latencyNanos);
+    }
+    if (throttle != null) {
+      if (latencyNanos >= 0) {
+        throttle.onPage(rows, latencyNanos);
+      } else {
+        throttle.acquire(rows);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package examples.datastax;
+
+import examples.Video;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque cursors for {@link DataStaxVideoDao#retrieveLatest(String, int)}: the added date (in
+ * milliseconds) and video id of the last video of a page, as URL safe base64.
+ *
+ * @author https://github.com/nblair
+ */
+final class LatestCursor {
+
+  private static final int LENGTH = 24;
+
+  private LatestCursor() {
+  }
+
+  /**
+   *
+   * @param last the last video of a page, with an added date and video id
+   * @return the cursor for the following page
+   */
+  static String encode(Video last) {
+    ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+      .putLong(last.getAdded().toEpochMilli())
+      .putLong(last.getVideoId().getMostSignificantBits())
+      .putLong(last.getVideoId().getLeastSignificantBits());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   *
+   * @param cursor a cursor returned by {@link #encode(Video)}
+   * @return a video with the added date and video id of the last video of the previous page
+   * @throws IllegalArgumentException if the cursor wasn't returned by {@link #encode(Video)}
+   */
+  static Video decode(String cursor) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor " + cursor, e);
+    }
+    if (bytes.length != LENGTH) {
+      throw new IllegalArgumentException("invalid cursor " + cursor);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new Video()
+      .setAdded(Instant.ofEpochMilli(buffer.getLong()))
+      .setVideoId(new UUID(buffer.getLong(), buffer.getLong()));
+  }
+}
@@ -0,0 +1,79 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Row;
+import java.nio.ByteBuffer;
+
+/**
+ * Decides how many rows {@link FullTableScan} requests per page, and is told how each page performed.
+ *
+ * A single controller is shared by every range of a scan, so implementations must be thread safe.
+ *
+ * @author https://github.com/nblair
+ */
+public interface PageController {
+
+  /**
+   *
+   * @return the number of rows to request in the next page
+   */
+  int pageSize();
+
+  /**
+   * Measuring the size of every row isn't free; controllers that ignore the bytes argument of
+   * {@link #onPage(int, long, long)} can return false to skip it.
+   *
+   * @return true if {@link #onPage(int, long, long)} should be given the serialized size of each page
+   */
+  default boolean measuresBytes() {
+    return true;
+  }
+
+  /**
+   * Record the outcome of a page.
+   *
+   * @param rows the number of rows consumed from the page
+   * @param bytes the serialized size of those rows, or 0 if {@link #measuresBytes()} is false
+   * @param latencyNanos the time taken to execute the page's statement, or -1 if the page was
+   * prefetched in the background and its latency is unknown
+   */
+  void onPage(int rows, long bytes, long latencyNanos);
+
+  /**
+   *
+   * @param pageSize the number of rows per page
+   * @return a controller that always requests the same number of rows
+   */
+  static PageController fixed(int pageSize) {
+    return new PageController() {
+      @Override
+      public int pageSize() {
+        return pageSize;
+      }
+
+      @Override
+      public boolean measuresBytes() {
+        return false;
+      }
+
+      @Override
+      public void onPage(int rows, long bytes, long latencyNanos) {
+      }
+    };
+  }
+
+  /**
+   *
+   * @param row a row of a result set
+   * @return the serialized size of the values in the row
+   */
+  static long bytes(Row row) {
+    long bytes = 0L;
+    for (int i = 0; i < row.getColumnDefinitions().size(); i++) {
+      ByteBuffer value = row.getBytesUnsafe(i);
+      if (value != null) {
+        bytes += value.remaining();
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,43 @@
+package examples.datastax;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of {@link PreparedStatement}s, so each query is prepared once per {@link Session} and
+ * then only bound and executed. The driver logs a warning (and makes a round trip to every host)
+ * each time the same query is prepared again.
+ *
+ * Sessions are weakly referenced, so a closed and discarded session's statements can be collected.
+ *
+ * Statements are keyed by their query string alone, so the first statement prepared decides the
+ * prepared statement's options (e.g. the consistency level); callers that need different options
+ * must set them on each bound statement.
+ *
+ * @author https://github.com/nblair
+ */
+final class PreparedStatements {
+
+  private static final Map<Session, ConcurrentMap<String, PreparedStatement>> SESSIONS =
+    Collections.synchronizedMap(new WeakHashMap<>());
+
+  private PreparedStatements() {
+  }
+
+  /**
+   *
+   * @param session an established C* session
+   * @param statement the statement to prepare, with bind markers for its values
+   * @return the statement prepared in the session, prepared only if this query string hasn't been seen before
+   */
+  static PreparedStatement prepare(Session session, RegularStatement statement) {
+    return SESSIONS.computeIfAbsent(session, s -> new ConcurrentHashMap<>())
+      .computeIfAbsent(statement.getQueryString(), query -> session.prepare(statement));
+  }
+}
@@ -0,0 +1,81 @@
+package examples.datastax;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Row;
+import java.util.List;
+
+/**
+ * {@link FullTableScan} of the same table as another scan, selecting only the primary key and an
+ * explicit list of columns. Rows are delivered as-is, so no object is mapped per row; consumers
+ * read the values they need straight from the {@link Row}.
+ *
+ * The columns of each row are, in order: the token, {@link #partitionKeys()}, {@link #clusteringColumns()},
+ * then {@link #columns()}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ProjectionScan implements FullTableScan<Row> {
+
+  private final FullTableScan<?> table;
+  private final List<String> columns;
+
+  /**
+   *
+   * @param table the scan whose table, keyspace, paging and options to use
+   * @param columns the columns to select in addition to the primary key
+   */
+  public ProjectionScan(FullTableScan<?> table, List<String> columns) {
+    this.table = table;
+    this.columns = columns;
+  }
+
+  @Override
+  public String table() {
+    return table.table();
+  }
+
+  @Override
+  public String keyspace() {
+    return table.keyspace();
+  }
+
+  @Override
+  public List<String> partitionKeys() {
+    return table.partitionKeys();
+  }
+
+  @Override
+  public List<String> clusteringColumns() {
+    return table.clusteringColumns();
+  }
+
+  @Override
+  public boolean clusteringDescending() {
+    return table.clusteringDescending();
+  }
+
+  @Override
+  public List<String> columns() {
+    return columns;
+  }
+
+  @Override
+  public Row mapRow(Row row) {
+    return row;
+  }
+
+  @Override
+  public int limit() {
+    return table.limit();
+  }
+
+  @Override
+  public ConsistencyLevel consistencyLevel() {
+    return table.consistencyLevel();
+  }
+
+  @Override
+  public TableScanOptions scanOptions() {
+    return table.scanOptions();
+  }
+}
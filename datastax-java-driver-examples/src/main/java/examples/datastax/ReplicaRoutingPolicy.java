@@ -0,0 +1,94 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.ChainableLoadBalancingPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.google.common.collect.Iterators;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * {@link LoadBalancingPolicy} that sends the sub-range queries of a replica aware table scan
+ * (see {@link TableScanOptions#setReplicaAware(boolean)}) to the replica chosen for that range,
+ * so the coordinator doesn't have to forward each page to another node.
+ *
+ * The chosen replica is placed first in the query plan (if it is up and not ignored by the child
+ * policy), followed by the child policy's plan. All other statements are left to the child policy.
+ *
+ * The DataStax driver only allows the load balancing policy to be set when the {@link Cluster} is built:
+ *
+ * <pre>
+ *   Cluster.builder()
+ *     .withLoadBalancingPolicy(new ReplicaRoutingPolicy(Policies.defaultLoadBalancingPolicy()))
+ * </pre>
+ *
+ * @author https://github.com/nblair
+ */
+public class ReplicaRoutingPolicy implements ChainableLoadBalancingPolicy {
+
+  private final LoadBalancingPolicy childPolicy;
+
+  /**
+   *
+   * @param childPolicy the policy used for all other statements, and for the remainder of each query plan
+   */
+  public ReplicaRoutingPolicy(LoadBalancingPolicy childPolicy) {
+    this.childPolicy = childPolicy;
+  }
+
+  @Override
+  public LoadBalancingPolicy getChildPolicy() {
+    return childPolicy;
+  }
+
+  @Override
+  public void init(Cluster cluster, Collection<Host> hosts) {
+    childPolicy.init(cluster, hosts);
+  }
+
+  @Override
+  public HostDistance distance(Host host) {
+    return childPolicy.distance(host);
+  }
+
+  @Override
+  public Iterator<Host> newQueryPlan(String loggedKeyspace, Statement statement) {
+    Iterator<Host> plan = childPolicy.newQueryPlan(loggedKeyspace, statement);
+    if (!(statement instanceof RoutedStatement)) {
+      return plan;
+    }
+    Host replica = ((RoutedStatement) statement).getReplica();
+    if (!replica.isUp() || childPolicy.distance(replica) == HostDistance.IGNORED) {
+      return plan;
+    }
+    return Iterators.concat(Iterators.singletonIterator(replica), Iterators.filter(plan, host -> !replica.equals(host)));
+  }
+
+  @Override
+  public void onAdd(Host host) {
+    childPolicy.onAdd(host);
+  }
+
+  @Override
+  public void onUp(Host host) {
+    childPolicy.onUp(host);
+  }
+
+  @Override
+  public void onDown(Host host) {
+    childPolicy.onDown(host);
+  }
+
+  @Override
+  public void onRemove(Host host) {
+    childPolicy.onRemove(host);
+  }
+
+  @Override
+  public void close() {
+    childPolicy.close();
+  }
+}
@@ -0,0 +1,43 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.StatementWrapper;
+
+/**
+ * {@link Statement} carrying the {@link Host} that {@link ReplicaRoutingPolicy} should try first.
+ *
+ * @author https://github.com/nblair
+ */
+final class RoutedStatement extends StatementWrapper {
+
+  private final Host replica;
+
+  /**
+   *
+   * @param wrapped the statement to execute
+   * @param replica the preferred coordinator, must not be null
+   */
+  RoutedStatement(Statement wrapped, Host replica) {
+    super(wrapped);
+    this.replica = replica;
+  }
+
+  /**
+   *
+   * @return the preferred coordinator for this statement
+   */
+  Host getReplica() {
+    return replica;
+  }
+
+  /**
+   *
+   * @param statement the statement to execute
+   * @param replica the preferred coordinator, or null if the load balancing policy should decide
+   * @return the statement, wrapped if a replica was provided
+   */
+  static Statement route(Statement statement, Host replica) {
+    return replica == null ? statement : new RoutedStatement(statement, replica);
+  }
+}
@@ -0,0 +1,134 @@
+package examples.datastax;
+
+import com.google.common.base.Charsets;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodically records the progress of a {@link FullTableScan} to a local file so that a failed
+ * (or restarted) scan can resume where it left off.
+ *
+ * The file holds one line per unfinished {@link ScanRange}: its {@link ScanRange#getResumePosition()}
+ * and {@link ScanRange#getEnd()}. A scan resumed from a checkpoint re-reads the last token claimed
+ * in each range, so consumers observe every row at least once and should be idempotent.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanCheckpoint {
+
+  private final Path file;
+  private final Duration interval;
+  private Runnable beforeWrite = () -> {};
+
+  /**
+   *
+   * @param file the checkpoint file; if it exists when the scan starts, the scan resumes from it
+   * @param interval how often to record progress
+   */
+  public ScanCheckpoint(Path file, Duration interval) {
+    this.file = file;
+    this.interval = interval;
+  }
+
+  /**
+   * Register a callback to persist consumer state alongside the checkpoint.
+   * It runs after the scan position has been captured, but before it is written, so state saved by
+   * the callback always covers at least the rows preceding the written position.
+   *
+   * @param beforeWrite invoked on the checkpoint thread before each write
+   * @return this instance
+   */
+  public ScanCheckpoint setBeforeWrite(Runnable beforeWrite) {
+    this.beforeWrite = beforeWrite;
+    return this;
+  }
+
+  /**
+   *
+   * @return the checkpoint file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   *
+   * @return how often progress is recorded
+   */
+  public Duration getInterval() {
+    return interval;
+  }
+
+  /**
+   *
+   * @return true if there is a checkpoint to resume from
+   */
+  public boolean exists() {
+    return Files.exists(file);
+  }
+
+  /**
+   *
+   * @return the unfinished ranges recorded in the checkpoint file
+   */
+  public List<ScanRange> read() {
+    try {
+      List<ScanRange> ranges = new ArrayList<>();
+      for (String line : Files.readAllLines(file, Charsets.UTF_8)) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] tokens = line.split(" ");
+        ranges.add(new ScanRange(Long.parseLong(tokens[0]), Long.parseLong(tokens[1])));
+      }
+      return ranges;
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read scan checkpoint " + file, e);
+    }
+  }
+
+  /**
+   * Capture the position of the provided ranges, run the {@link #setBeforeWrite(Runnable)}
+   * callback, and then atomically replace the checkpoint file.
+   *
+   * @param ranges the unfinished ranges
+   */
+  void write(List<ScanRange> ranges) {
+    List<String> lines = new ArrayList<>(ranges.size() + 1);
+    lines.add("# resume position, end token");
+    for (ScanRange range : ranges) {
+      lines.add(range.getResumePosition() + " " + range.getEnd());
+    }
+    beforeWrite.run();
+    try {
+      Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, Charsets.UTF_8)) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write scan checkpoint " + file, e);
+    }
+  }
+
+  /**
+   * Remove the checkpoint file, typically once the scan has completed.
+   */
+  public void delete() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to delete scan checkpoint " + file, e);
+    }
+  }
+}
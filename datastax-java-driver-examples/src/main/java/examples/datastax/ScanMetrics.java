@@ -0,0 +1,133 @@
+package examples.datastax;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Publishes the throughput and progress of table scans to a {@link MetricRegistry}, under the
+ * provided name:
+ *
+ * <ul>
+ *   <li>{@code name.rows}: {@link Meter} of rows read</li>
+ *   <li>{@code name.pages}: {@link Meter} of pages read</li>
+ *   <li>{@code name.bytes}: {@link Meter} of bytes received (the serialized size of the selected values)</li>
+ *   <li>{@code name.pageLatency}: {@link Timer} of page latency, for pages fetched in the foreground</li>
+ *   <li>{@code name.progress}: {@link Gauge} of the fraction of the token ring covered by the current (or last) scan</li>
+ *   <li>{@code name.eta}: {@link Gauge} of the estimated seconds until the current scan completes, or -1 if unknown</li>
+ * </ul>
+ *
+ * An instance should be used by one scan at a time.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanMetrics {
+
+  private final Meter rows;
+  private final Meter pages;
+  private final Meter bytes;
+  private final Timer pageLatency;
+  private volatile DoubleSupplier progress = () -> 0.0;
+  private volatile double startProgress;
+  private volatile long startNanos;
+  private volatile boolean running;
+
+  /**
+   *
+   * @param registry the registry to publish to
+   * @param name the prefix for each metric name
+   */
+  public ScanMetrics(MetricRegistry registry, String name) {
+    this.rows = registry.meter(name(name, "rows"));
+    this.pages = registry.meter(name(name, "pages"));
+    this.bytes = registry.meter(name(name, "bytes"));
+    this.pageLatency = registry.timer(name(name, "pageLatency"));
+    registry.register(name(name, "progress"), (Gauge<Double>) this::getProgress);
+    registry.register(name(name, "eta"), (Gauge<Long>) this::getEtaSeconds);
+  }
+
+  /**
+   * Record the start of a scan.
+   *
+   * @param progress the fraction of the token ring covered so far
+   */
+  void started(DoubleSupplier progress) {
+    this.progress = progress;
+    this.startProgress = progress.getAsDouble();
+    this.startNanos = System.nanoTime();
+    this.running = true;
+  }
+
+  /**
+   * Record the end of a scan; {@link #getProgress()} keeps the final value.
+   */
+  void finished() {
+    double last = progress.getAsDouble();
+    this.progress = () -> last;
+    this.running = false;
+  }
+
+  /**
+   * Record a page.
+   *
+   * @param rows the number of rows in the page
+   * @param bytes the serialized size of the page
+   * @param latencyNanos the time taken to fetch the page, or a negative value if unknown
+   */
+  void onPage(int rows, long bytes, long latencyNanos) {
+    this.rows.mark(rows);
+    this.pages.mark();
+    this.bytes.mark(bytes);
+    if (latencyNanos >= 0) {
+      pageLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   *
+   * @return true if a scan is in progress
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   *
+   * @return the fraction of the token ring covered by the current (or last) scan, between 0 and 1
+   */
+  public double getProgress() {
+    return progress.getAsDouble();
+  }
+
+  /**
+   * Extrapolates the rate at which the current scan has covered the ring since it started (or resumed).
+   *
+   * @return the estimated number of seconds until the current scan completes, or -1 if no scan is
+   * running or no progress has been made yet
+   */
+  public long getEtaSeconds() {
+    if (!running) {
+      return -1L;
+    }
+    double current = getProgress();
+    double covered = current - startProgress;
+    if (covered <= 0) {
+      return -1L;
+    }
+    double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+    return (long) (elapsedSeconds * (1.0 - current) / covered);
+  }
+
+  /**
+   *
+   * @return the mean rate of rows read over the last minute
+   */
+  public double getRowsPerSecond() {
+    return rows.getOneMinuteRate();
+  }
+}
@@ -0,0 +1,221 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Host;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous, inclusive range of Murmur3 token values that is being (or will be) scanned by
+ * {@link FullTableScan#tableScan(com.datastax.driver.core.Session, ScanRange, java.util.function.Consumer)}.
+ *
+ * A range tracks the next token to read, and can be {@link #split()} while a scan is in progress;
+ * the scanning thread observes the new (smaller) end via {@link #claim(long)}, so each token is
+ * consumed by exactly one range.
+ *
+ * @author https://github.com/nblair
+ */
+public final class ScanRange {
+
+  /**
+   * The minimum possible value returned by the token function (given Murmur3 partitioner).
+   */
+  public static final long MINIMUM_TOKEN = Long.MIN_VALUE;
+  /**
+   * The maximum possible value returned by the token function (given Murmur3 partitioner).
+   */
+  public static final long MAXIMUM_TOKEN = Long.MAX_VALUE;
+  /**
+   * Ranges with fewer remaining tokens than this will not be {@link #split()}; 2^48 leaves at
+   * most 65536 ranges on the full ring.
+   */
+  public static final long MINIMUM_SPLIT_SPAN = 1L << 48;
+  /**
+   * The number of tokens on the ring, 2^64.
+   */
+  private static final double RING_SIZE = 0x1p64;
+
+  private final long start;
+  private long end;
+  private long position;
+  private long lastClaimed;
+  private boolean complete;
+  private boolean stopped;
+  private Host replica;
+
+  /**
+   *
+   * @param start the first token in the range (inclusive)
+   * @param end the last token in the range (inclusive), must be greater than or equal to start
+   */
+  public ScanRange(long start, long end) {
+    if (end < start) {
+      throw new IllegalArgumentException("end token " + end + " is less than start token " + start);
+    }
+    this.start = start;
+    this.end = end;
+    this.position = start;
+    this.lastClaimed = start;
+  }
+
+  /**
+   *
+   * @return a range covering every token on the ring
+   */
+  public static ScanRange fullRing() {
+    return new ScanRange(MINIMUM_TOKEN, MAXIMUM_TOKEN);
+  }
+
+  /**
+   * Divide the ring into evenly sized, contiguous ranges.
+   *
+   * @param count the number of ranges, must be positive
+   * @return the ranges, in token order
+   */
+  public static List<ScanRange> splitRing(int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("count must be positive, was " + count);
+    }
+    List<ScanRange> ranges = new ArrayList<>(count);
+    // the ring holds 2^64 tokens; treat the span as an unsigned long
+    long step = Long.divideUnsigned(-1L, count);
+    long next = MINIMUM_TOKEN;
+    for (int i = 0; i < count; i++) {
+      long last = i == count - 1 ? MAXIMUM_TOKEN : next + step - 1;
+      ranges.add(new ScanRange(next, last));
+      next = last + 1;
+    }
+    return ranges;
+  }
+
+  /**
+   *
+   * @return the first token in the range
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   *
+   * @return the last token in the range; shrinks when the range is {@link #split()}
+   */
+  public synchronized long getEnd() {
+    return end;
+  }
+
+  /**
+   *
+   * @return the lowest token that has not yet been claimed
+   */
+  public synchronized long getPosition() {
+    return position;
+  }
+
+  /**
+   * The consumer may not have finished with rows of the most recently claimed token, so a resumed
+   * scan restarts from (and re-reads) that token.
+   *
+   * @return the token a resumed scan of this range should start from
+   */
+  public synchronized long getResumePosition() {
+    return lastClaimed;
+  }
+
+  /**
+   *
+   * @return true if the scan reached the end of the range, or the range was {@link #stop()}ped
+   */
+  public synchronized boolean isComplete() {
+    return complete || stopped;
+  }
+
+  /**
+   * Record that a row with the provided token is about to be consumed.
+   *
+   * @param token the token of the row
+   * @return true if the token belongs to this range; false if the row must be skipped and the scan
+   * of this range should end (the token lies beyond {@link #getEnd()} or the range was stopped)
+   */
+  public synchronized boolean claim(long token) {
+    if (stopped || token > end) {
+      return false;
+    }
+    lastClaimed = Math.max(lastClaimed, token);
+    if (token == end) {
+      // rows sharing the final token remain claimable, but no further query is needed
+      complete = true;
+    } else if (token >= position) {
+      position = token + 1;
+    }
+    return true;
+  }
+
+  /**
+   * Give away the upper half of the unclaimed tokens in this range.
+   *
+   * @return a new range covering the upper half of the remaining tokens, or null if the range is
+   * complete or too small to split
+   */
+  public synchronized ScanRange split() {
+    if (isComplete() || Long.compareUnsigned(remaining(), MINIMUM_SPLIT_SPAN) < 0) {
+      return null;
+    }
+    long middle = position + (remaining() >>> 1);
+    ScanRange upper = new ScanRange(middle + 1, end);
+    this.end = middle;
+    return upper;
+  }
+
+  /**
+   *
+   * @return the number of unclaimed tokens in the range, minus one, as an unsigned long
+   */
+  public synchronized long remaining() {
+    if (isComplete()) {
+      return 0L;
+    }
+    return end - position;
+  }
+
+  /**
+   *
+   * @return the replica queries for this range are sent to, or null if the load balancing policy decides
+   */
+  public synchronized Host getReplica() {
+    return replica;
+  }
+
+  /**
+   * Only has an effect when the cluster uses {@link ReplicaRoutingPolicy}.
+   *
+   * @param replica the replica queries for this range should be sent to, or null if the load balancing policy decides
+   */
+  public synchronized void setReplica(Host replica) {
+    this.replica = replica;
+  }
+
+  /**
+   *
+   * @return the fraction of the whole token ring that has not yet been claimed in this range
+   */
+  public synchronized double remainingFraction() {
+    if (isComplete()) {
+      return 0.0;
+    }
+    long tokens = end - position;
+    // unsigned to double, plus one as remaining() excludes the current position
+    return ((tokens >>> 1) * 2.0 + (tokens & 1L) + 1.0) / RING_SIZE;
+  }
+
+  /**
+   * Stop scanning this range; subsequent calls to {@link #claim(long)} return false.
+   */
+  public synchronized void stop() {
+    this.stopped = true;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ScanRange[" + start + ", " + end + "] at " + position;
+  }
+}
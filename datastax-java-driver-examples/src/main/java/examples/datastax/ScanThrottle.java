@@ -0,0 +1,123 @@
+package examples.datastax;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the rate at which {@link FullTableScan#tableScan(com.datastax.driver.core.Session, java.util.function.Consumer)}
+ * reads rows, so a background scan doesn't starve foreground requests against the same cluster.
+ *
+ * The rate starts at the maximum. After each page, it is halved (down to the minimum) if the page
+ * took longer than the page latency threshold or the foreground latency is over its threshold;
+ * otherwise it recovers by a twentieth of the maximum. A single throttle may be shared by
+ * concurrent scans.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanThrottle {
+
+  private final double maximumRowsPerSecond;
+  private final RateLimiter rateLimiter;
+  private double minimumRowsPerSecond;
+  private long pageLatencyThresholdNanos = Long.MAX_VALUE;
+  private LongSupplier foregroundLatencyNanos = () -> 0L;
+  private long foregroundLatencyThresholdNanos = Long.MAX_VALUE;
+
+  /**
+   *
+   * @param maximumRowsPerSecond the rate at which rows are read when the cluster isn't under pressure, must be positive
+   */
+  public ScanThrottle(double maximumRowsPerSecond) {
+    if (maximumRowsPerSecond <= 0) {
+      throw new IllegalArgumentException("maximumRowsPerSecond must be positive, was " + maximumRowsPerSecond);
+    }
+    this.maximumRowsPerSecond = maximumRowsPerSecond;
+    this.minimumRowsPerSecond = maximumRowsPerSecond / 100;
+    this.rateLimiter = RateLimiter.create(maximumRowsPerSecond);
+  }
+
+  /**
+   *
+   * @param minimumRowsPerSecond the rate the throttle never backs off below, defaults to 1% of the maximum
+   * @return this instance
+   */
+  public ScanThrottle setMinimumRowsPerSecond(double minimumRowsPerSecond) {
+    if (minimumRowsPerSecond <= 0 || minimumRowsPerSecond > maximumRowsPerSecond) {
+      throw new IllegalArgumentException("minimumRowsPerSecond must be positive and no greater than " + maximumRowsPerSecond + ", was " + minimumRowsPerSecond);
+    }
+    this.minimumRowsPerSecond = minimumRowsPerSecond;
+    return this;
+  }
+
+  /**
+   *
+   * @param pageLatencyThreshold back off when a page of the scan takes longer than this
+   * @return this instance
+   */
+  public ScanThrottle setPageLatencyThreshold(Duration pageLatencyThreshold) {
+    this.pageLatencyThresholdNanos = pageLatencyThreshold.toNanos();
+    return this;
+  }
+
+  /**
+   *
+   * @param foregroundLatencyNanos the current latency of foreground requests (e.g. a 99th percentile), in nanoseconds
+   * @param foregroundLatencyThreshold back off when the foreground latency is greater than this
+   * @return this instance
+   */
+  public ScanThrottle setForegroundLatency(LongSupplier foregroundLatencyNanos, Duration foregroundLatencyThreshold) {
+    this.foregroundLatencyNanos = foregroundLatencyNanos;
+    this.foregroundLatencyThresholdNanos = foregroundLatencyThreshold.toNanos();
+    return this;
+  }
+
+  /**
+   *
+   * @return the current limit, in rows per second
+   */
+  public double getRowsPerSecond() {
+    return rateLimiter.getRate();
+  }
+
+  /**
+   * Adjust the rate given the latency of a page, then block until the page's rows are permitted.
+   *
+   * @param rows the number of rows in the page
+   * @param latencyNanos the time taken to fetch the page
+   */
+  public void onPage(int rows, long latencyNanos) {
+    adjust(latencyNanos > pageLatencyThresholdNanos);
+    if (rows > 0) {
+      rateLimiter.acquire(rows);
+    }
+  }
+
+  /**
+   * Adjust the rate given only the foreground latency (for pages fetched in the background, whose
+   * latency isn't known), then block until the rows are permitted.
+   *
+   * @param rows the number of rows read
+   */
+  public void acquire(int rows) {
+    adjust(false);
+    if (rows > 0) {
+      rateLimiter.acquire(rows);
+    }
+  }
+
+  /**
+   *
+   * @param slowPage true if the scan's own page latency is over the threshold
+   */
+  private synchronized void adjust(boolean slowPage) {
+    boolean overloaded = slowPage || foregroundLatencyNanos.getAsLong() > foregroundLatencyThresholdNanos;
+    double rate = rateLimiter.getRate();
+    double next = overloaded
+      ? Math.max(minimumRowsPerSecond, rate / 2)
+      : Math.min(maximumRowsPerSecond, rate + maximumRowsPerSecond / 20);
+    if (next != rate) {
+      rateLimiter.setRate(next);
+    }
+  }
+}
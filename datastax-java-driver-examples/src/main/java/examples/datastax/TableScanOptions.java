@@ -0,0 +1,290 @@
+package examples.datastax;
+
+import java.time.Duration;
+
+/**
+ * Tuning options for {@link FullTableScan#tableScan(com.datastax.driver.core.Session, java.util.function.Consumer)}.
+ *
+ * The defaults reproduce a single threaded scan of the full ring.
+ *
+ * @author https://github.com/nblair
+ */
+public class TableScanOptions {
+
+  private int parallelism = 1;
+  private boolean driverPaging = false;
+  private boolean preparedStatements = false;
+  private int prefetchPages = 1;
+  private int minimumPageSize;
+  private int maximumPageSize;
+  private Duration targetPageLatency;
+  private long maximumPageBytes = 4L * 1024 * 1024;
+  private boolean replicaAware = false;
+  private int maximumRangesPerHost = 2;
+  private ScanThrottle throttle;
+  private ScanMetrics metrics;
+
+  /**
+   *
+   * @return the number of token ranges to scan concurrently
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * When greater than 1, the ring is split into this many ranges that are scanned concurrently on a
+   * bounded pool of the same size; ranges still running when others finish are split again.
+   *
+   * @param parallelism the number of token ranges to scan concurrently, must be positive
+   * @return this instance
+   */
+  public TableScanOptions setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   *
+   * @return true if ranges are read with a single statement using the driver's paging state
+   */
+  public boolean isDriverPaging() {
+    return driverPaging;
+  }
+
+  /**
+   * When true, each range is read with a single statement (fetch size of {@link FullTableScan#limit()})
+   * and the driver's paging state, rather than a new "token(...) &gt;= ? LIMIT ?" query per page.
+   * Subsequent pages are requested asynchronously while the current page is consumed; see
+   * {@link #setPrefetchPages(int)}.
+   *
+   * @param driverPaging true to use driver paging
+   * @return this instance
+   */
+  public TableScanOptions setDriverPaging(boolean driverPaging) {
+    this.driverPaging = driverPaging;
+    return this;
+  }
+
+  /**
+   *
+   * @return true if scan queries are prepared once per session and bound for each page
+   */
+  public boolean isPreparedStatements() {
+    return preparedStatements;
+  }
+
+  /**
+   * When true, the range and partition queries are prepared (once per session, see
+   * {@link FullTableScan#preparedSelect(com.datastax.driver.core.Session, boolean)}) and each page binds its tokens and
+   * page size, rather than sending a new query string for Cassandra to parse.
+   *
+   * @param preparedStatements true to use prepared statements
+   * @return this instance
+   */
+  public TableScanOptions setPreparedStatements(boolean preparedStatements) {
+    this.preparedStatements = preparedStatements;
+    return this;
+  }
+
+  /**
+   *
+   * @return the number of pages to request ahead of the consumer when {@link #isDriverPaging()}
+   */
+  public int getPrefetchPages() {
+    return prefetchPages;
+  }
+
+  /**
+   * Only applies when {@link #isDriverPaging()}; 0 disables prefetch (the driver then fetches
+   * each page synchronously once the previous one is consumed).
+   *
+   * @param prefetchPages the number of pages to request ahead of the consumer, must not be negative
+   * @return this instance
+   */
+  public TableScanOptions setPrefetchPages(int prefetchPages) {
+    if (prefetchPages < 0) {
+      throw new IllegalArgumentException("prefetchPages must not be negative, was " + prefetchPages);
+    }
+    this.prefetchPages = prefetchPages;
+    return this;
+  }
+
+  /**
+   *
+   * @return true if ranges follow the cluster's token ranges and are routed to their replicas
+   */
+  public boolean isReplicaAware() {
+    return replicaAware;
+  }
+
+  /**
+   * When true, the ring is divided along the token ranges in the driver's
+   * {@link com.datastax.driver.core.Metadata} (rather than into {@link #getParallelism()} equal
+   * ranges), and each range is assigned to the least busy of its live replicas, with no more than
+   * {@link #getMaximumRangesPerHost()} ranges assigned to a host at a time. {@link #getParallelism()}
+   * still bounds the number of ranges scanned concurrently.
+   *
+   * Queries are only sent to the assigned replica if the cluster is built with a {@link ReplicaRoutingPolicy}.
+   *
+   * @param replicaAware true to route each range to one of its replicas
+   * @return this instance
+   */
+  public TableScanOptions setReplicaAware(boolean replicaAware) {
+    this.replicaAware = replicaAware;
+    return this;
+  }
+
+  /**
+   *
+   * @return the maximum number of ranges scanned concurrently on a single replica when {@link #isReplicaAware()}
+   */
+  public int getMaximumRangesPerHost() {
+    return maximumRangesPerHost;
+  }
+
+  /**
+   * Only applies when {@link #isReplicaAware()}; workers wait rather than overload a replica.
+   *
+   * @param maximumRangesPerHost the maximum number of ranges scanned concurrently on a single replica, must be positive
+   * @return this instance
+   */
+  public TableScanOptions setMaximumRangesPerHost(int maximumRangesPerHost) {
+    if (maximumRangesPerHost < 1) {
+      throw new IllegalArgumentException("maximumRangesPerHost must be positive, was " + maximumRangesPerHost);
+    }
+    this.maximumRangesPerHost = maximumRangesPerHost;
+    return this;
+  }
+
+  /**
+   *
+   * @return true if page sizes adapt to measured latency, rather than always being {@link FullTableScan#limit()}
+   */
+  public boolean isAdaptivePageSize() {
+    return targetPageLatency != null;
+  }
+
+  /**
+   * Adjust the page size between the provided bounds, aiming for pages that take targetPageLatency
+   * to fetch and are no larger than {@link #getMaximumPageBytes()}; see {@link AdaptivePageSize}.
+   * When adaptive, {@link FullTableScan#limit()} is ignored.
+   *
+   * @param minimumPageSize the smallest page size, and the size of the first page
+   * @param maximumPageSize the largest page size
+   * @param targetPageLatency the desired time to fetch a page, or null to disable adaptive page sizes
+   * @return this instance
+   */
+  public TableScanOptions setAdaptivePageSize(int minimumPageSize, int maximumPageSize, Duration targetPageLatency) {
+    if (targetPageLatency != null && (minimumPageSize < 1 || maximumPageSize < minimumPageSize)) {
+      throw new IllegalArgumentException("page size bounds must satisfy 0 < minimum <= maximum, were "
+        + minimumPageSize + " and " + maximumPageSize);
+    }
+    this.minimumPageSize = minimumPageSize;
+    this.maximumPageSize = maximumPageSize;
+    this.targetPageLatency = targetPageLatency;
+    return this;
+  }
+
+  /**
+   *
+   * @return the smallest page size when {@link #isAdaptivePageSize()}
+   */
+  public int getMinimumPageSize() {
+    return minimumPageSize;
+  }
+
+  /**
+   *
+   * @return the largest page size when {@link #isAdaptivePageSize()}
+   */
+  public int getMaximumPageSize() {
+    return maximumPageSize;
+  }
+
+  /**
+   *
+   * @return the desired time to fetch a page when {@link #isAdaptivePageSize()}, otherwise null
+   */
+  public Duration getTargetPageLatency() {
+    return targetPageLatency;
+  }
+
+  /**
+   *
+   * @return the largest desired page, in bytes, when {@link #isAdaptivePageSize()}
+   */
+  public long getMaximumPageBytes() {
+    return maximumPageBytes;
+  }
+
+  /**
+   * Only applies when {@link #isAdaptivePageSize()}; keeps wide rows from producing response frames
+   * that are large enough to time out.
+   *
+   * @param maximumPageBytes the largest desired page, in bytes, must be positive
+   * @return this instance
+   */
+  public TableScanOptions setMaximumPageBytes(long maximumPageBytes) {
+    if (maximumPageBytes < 1) {
+      throw new IllegalArgumentException("maximumPageBytes must be positive, was " + maximumPageBytes);
+    }
+    this.maximumPageBytes = maximumPageBytes;
+    return this;
+  }
+
+  /**
+   *
+   * @return the throttle limiting the rate rows are read, or null if unthrottled
+   */
+  public ScanThrottle getThrottle() {
+    return throttle;
+  }
+
+  /**
+   * Each page of a scan waits for permission from the throttle before the next page is requested.
+   *
+   * @param throttle the throttle limiting the rate rows are read, or null if unthrottled
+   * @return this instance
+   */
+  public TableScanOptions setThrottle(ScanThrottle throttle) {
+    this.throttle = throttle;
+    return this;
+  }
+
+  /**
+   *
+   * @return the metrics scans are recorded in, or null if scans are not instrumented
+   */
+  public ScanMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   *
+   * @param metrics the metrics scans are recorded in, or null if scans are not instrumented
+   * @return this instance
+   */
+  public TableScanOptions setMetrics(ScanMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   *
+   * @param limit the fixed page size to use when page sizes are not adaptive
+   * @return a new {@link PageController} for a single scan, reporting to the throttle and metrics if set
+   */
+  PageController pageController(int limit) {
+    PageController pages = isAdaptivePageSize()
+      ? new AdaptivePageSize(minimumPageSize, maximumPageSize, targetPageLatency, maximumPageBytes)
+      : PageController.fixed(limit);
+    if (throttle == null && metrics == null) {
+      return pages;
+    }
+    return new InstrumentedPageController(pages, throttle, metrics);
+  }
+}
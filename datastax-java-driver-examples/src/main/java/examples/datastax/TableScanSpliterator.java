@@ -0,0 +1,176 @@
+package examples.datastax;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} over the rows of a {@link FullTableScan} within a {@link ScanRange}.
+ *
+ * Pages are fetched lazily, only when the previous page has been consumed, so short-circuiting
+ * stream operations stop querying Cassandra. {@link #trySplit()} hands the upper half of the
+ * remaining tokens to a new spliterator, which lets parallel streams divide the ring.
+ *
+ * @author https://github.com/nblair
+ */
+class TableScanSpliterator<T> implements Spliterator<T> {
+
+  private final FullTableScan<T> definition;
+  private final Session session;
+  private final ScanRange range;
+  private final PageController pages;
+  private PreparedStatement select;
+  private PreparedStatement partitionSelect;
+  private ResultSet resultSet;
+  private int fetchSize;
+  private int pageRows;
+  private Row last;
+  private Iterator<Row> rows;
+  private boolean exhausted = false;
+
+  /**
+   *
+   * @param definition the table to scan
+   * @param session an established C* session
+   * @param range the tokens to scan
+   */
+  TableScanSpliterator(FullTableScan<T> definition, Session session, ScanRange range) {
+    this(definition, session, range, definition.scanOptions().pageController(definition.limit()));
+  }
+
+  /**
+   *
+   * @param definition the table to scan
+   * @param session an established C* session
+   * @param range the tokens to scan
+   * @param pages decides the size of each page; shared with spliterators split from this one
+   */
+  private TableScanSpliterator(FullTableScan<T> definition, Session session, ScanRange range, PageController pages) {
+    this.definition = definition;
+    this.session = session;
+    this.range = range;
+    this.pages = pages;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (!exhausted) {
+      if (rows == null || !rows.hasNext()) {
+        fetchNextPage();
+        continue;
+      }
+      prefetch();
+      Row row = rows.next();
+      if (!range.claim(row.getLong(definition.keyspacePrefixedTokenColumn()))) {
+        // the range was split while this page was in flight
+        exhausted = true;
+        break;
+      }
+      pageRows++;
+      last = row;
+      action.accept(definition.mapRow(row));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Execute the statement for the next page, or mark the spliterator exhausted if there is none.
+   * A full page of a table with clustering columns may have ended partway through a partition, so
+   * the rest of that partition is fetched before moving on to the next token.
+   */
+  private void fetchNextPage() {
+    boolean driverPaging = definition.scanOptions().isDriverPaging();
+    boolean partition = !driverPaging && last != null && pageRows == fetchSize && !definition.clusteringColumns().isEmpty();
+    if ((range.isComplete() && !partition) || (driverPaging && resultSet != null)) {
+      // with driver paging, the first statement covers the whole range
+      exhausted = true;
+      return;
+    }
+    fetchSize = pages.pageSize();
+    Statement statement = driverPaging
+      ? definition.pagedStatement(range, fetchSize, select())
+      : partition ? definition.partitionStatement(range, last, fetchSize, partitionSelect())
+      : definition.statement(range, fetchSize, select());
+    long started = System.nanoTime();
+    resultSet = session.execute(statement);
+    long latency = System.nanoTime() - started;
+    // only the latency is measured here; rows are mapped lazily, so the page is not walked twice
+    pages.onPage(resultSet.getAvailableWithoutFetching(), 0L, latency);
+    rows = resultSet.iterator();
+    pageRows = 0;
+    if (!rows.hasNext() && !partition) {
+      // an empty partition page just means the partition ended on the page boundary
+      exhausted = true;
+    }
+  }
+
+  /**
+   * Resolved on first use and shared with spliterators split from this one, rather than rebuilding
+   * the query for every page.
+   *
+   * @return the prepared range query (paged with driver paging), or null if statements aren't prepared
+   */
+  private PreparedStatement select() {
+    if (select == null && definition.scanOptions().isPreparedStatements()) {
+      select = definition.preparedSelect(session, definition.scanOptions().isDriverPaging());
+    }
+    return select;
+  }
+
+  /**
+   *
+   * @return the prepared partition query, or null if statements aren't prepared
+   */
+  private PreparedStatement partitionSelect() {
+    if (partitionSelect == null && definition.scanOptions().isPreparedStatements()) {
+      partitionSelect = definition.preparedPartitionSelect(session);
+    }
+    return partitionSelect;
+  }
+
+  /**
+   * With driver paging, request the following pages before the current one is consumed.
+   */
+  private void prefetch() {
+    TableScanOptions options = definition.scanOptions();
+    if (options.isDriverPaging()
+      && resultSet.getAvailableWithoutFetching() < options.getPrefetchPages() * fetchSize
+      && !resultSet.isFullyFetched()) {
+      resultSet.fetchMoreResults();
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    ScanRange upper = range.split();
+    if (upper == null) {
+      return null;
+    }
+    TableScanSpliterator<T> split = new TableScanSpliterator<>(definition, session, upper, pages);
+    split.select = select;
+    split.partitionSelect = partitionSelect;
+    return split;
+  }
+
+  /**
+   * The number of rows is unknown; the estimate is proportional to the number of unclaimed tokens,
+   * which is all {@link java.util.stream.Stream#parallel()} needs to decide how far to split.
+   *
+   * @return half of {@link ScanRange#remaining()}
+   */
+  @Override
+  public long estimateSize() {
+    return exhausted ? 0L : range.remaining() >>> 1;
+  }
+
+  @Override
+  public int characteristics() {
+    return NONNULL;
+  }
+}
@@ -0,0 +1,364 @@
+package examples.datastax;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Token;
+import com.datastax.driver.core.TokenRange;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates a single {@link FullTableScan}, splitting the ring into {@link ScanRange}s
+ * that are scanned concurrently according to the {@link TableScanOptions}.
+ *
+ * When a worker finishes its range and no ranges are pending, the active range with the most
+ * remaining tokens is {@link ScanRange#split()} so one slow range doesn't hold up the scan.
+ *
+ * When {@link TableScanOptions#isReplicaAware()}, the ranges follow the cluster's token ranges and
+ * each is assigned to one of its replicas, with at most {@link TableScanOptions#getMaximumRangesPerHost()}
+ * ranges per replica; a worker waits if every pending range's replicas are busy.
+ *
+ * If a {@link ScanCheckpoint} is provided, progress is recorded periodically (and when the scan
+ * fails), and a scan started while a checkpoint file exists resumes from it.
+ *
+ * @author https://github.com/nblair
+ */
+class TableScanner<T> {
+
+  private final Logger logger = LoggerFactory.getLogger(TableScanner.class);
+  private final FullTableScan<T> definition;
+  private final Session session;
+  private final TableScanOptions options;
+  private final ScanCheckpoint checkpoint;
+  private final PageController pages;
+  private final Deque<ScanRange> pending = new ArrayDeque<>();
+  private final List<ScanRange> active = new ArrayList<>();
+  private final Map<Host, Integer> rangesPerHost = new HashMap<>();
+  private boolean stopped = false;
+
+  TableScanner(FullTableScan<T> definition, Session session, TableScanOptions options) {
+    this(definition, session, options, null);
+  }
+
+  /**
+   *
+   * @param definition the table to scan
+   * @param session an established C* session
+   * @param options scan tuning options
+   * @param checkpoint where to record progress, or null to disable checkpoints
+   */
+  TableScanner(FullTableScan<T> definition, Session session, TableScanOptions options, ScanCheckpoint checkpoint) {
+    this.definition = definition;
+    this.session = session;
+    this.options = options;
+    this.checkpoint = checkpoint;
+    this.pages = options.pageController(definition.limit());
+  }
+
+  /**
+   * Run the scan, blocking until every range is complete.
+   *
+   * @param consumer the consumer to act on each row; must be thread safe if parallelism is greater than 1
+   */
+  void scan(Consumer<T> consumer) {
+    if (checkpoint != null && checkpoint.exists()) {
+      List<ScanRange> resumed = checkpoint.read();
+      logger.info("resuming scan of {} with {} unfinished ranges from {}", definition.table(), resumed.size(), checkpoint.getFile());
+      pending.addAll(resumed);
+    } else if (options.isReplicaAware()) {
+      pending.addAll(replicaRanges());
+    } else {
+      pending.addAll(ScanRange.splitRing(options.getParallelism()));
+    }
+
+    ScheduledExecutorService checkpoints = null;
+    if (checkpoint != null) {
+      checkpoints = Executors.newSingleThreadScheduledExecutor(threadFactory("table-scan-checkpoint-" + definition.table() + "-%d"));
+      long interval = checkpoint.getInterval().toMillis();
+      checkpoints.scheduleWithFixedDelay(this::writeCheckpoint, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    if (options.getMetrics() != null) {
+      options.getMetrics().started(this::progress);
+    }
+    try {
+      if (options.getParallelism() == 1) {
+        work(consumer);
+      } else {
+        scanInParallel(consumer);
+      }
+    } catch (RuntimeException e) {
+      stop();
+      if (checkpoint != null) {
+        writeCheckpoint();
+      }
+      throw e;
+    } finally {
+      if (checkpoints != null) {
+        checkpoints.shutdownNow();
+      }
+      if (options.getMetrics() != null) {
+        options.getMetrics().finished();
+      }
+    }
+    if (checkpoint != null) {
+      checkpoint.delete();
+    }
+  }
+
+  /**
+   * Run {@link #work(Consumer)} on a bounded pool with one thread per {@link TableScanOptions#getParallelism()}.
+   *
+   * @param consumer the consumer to act on each row
+   */
+  private void scanInParallel(Consumer<T> consumer) {
+    ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism(),
+      threadFactory("table-scan-" + definition.table() + "-%d"));
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < options.getParallelism(); i++) {
+        workers.add(executor.submit(() -> work(consumer)));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted during table scan of " + definition.table(), e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("table scan of " + definition.table() + " failed", e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Scan ranges until there are none left. A failure stops the other workers.
+   *
+   * @param consumer the consumer to act on each row
+   */
+  private void work(Consumer<T> consumer) {
+    try {
+      ScanRange range = next(null);
+      while (range != null) {
+        definition.tableScan(session, range, consumer, pages);
+        range = next(range);
+      }
+    } catch (RuntimeException e) {
+      stop();
+      throw e;
+    }
+  }
+
+  /**
+   * Hand out the next range to scan.
+   *
+   * @param finished the range the calling worker just completed, or null on the first call
+   * @return the next range to scan, or null if there is nothing left
+   */
+  synchronized ScanRange next(ScanRange finished) {
+    if (stopped) {
+      // keep the interrupted range for the checkpoint
+      return null;
+    }
+    if (finished != null) {
+      active.remove(finished);
+      release(finished);
+    }
+    while (!stopped) {
+      ScanRange range = claimPending();
+      if (range == null && pending.isEmpty()) {
+        ScanRange split = splitLargestActive();
+        if (split != null) {
+          pending.add(split);
+          range = claimPending();
+        }
+      }
+      if (range != null) {
+        active.add(range);
+        return range;
+      }
+      if (pending.isEmpty()) {
+        return null;
+      }
+      // every pending range is waiting for one of its replicas to finish another range
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("interrupted during table scan of " + definition.table(), e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Remove the first pending range that can be scanned now. When replica aware, the range is
+   * assigned to its least busy live replica, and skipped if that replica is already at capacity.
+   *
+   * @return a pending range, or null if there is none that can be scanned now
+   */
+  private ScanRange claimPending() {
+    if (!options.isReplicaAware()) {
+      return pending.poll();
+    }
+    Metadata metadata = session.getCluster().getMetadata();
+    for (Iterator<ScanRange> ranges = pending.iterator(); ranges.hasNext(); ) {
+      ScanRange range = ranges.next();
+      Token end = metadata.newToken(Long.toString(range.getEnd()));
+      Set<Host> replicas = metadata.getReplicas(keyspace(), metadata.newTokenRange(end, end));
+      Host replica = replicas.stream()
+        .filter(Host::isUp)
+        .min(Comparator.comparingInt(host -> rangesPerHost.getOrDefault(host, 0)))
+        .orElse(null);
+      if (replica != null && rangesPerHost.getOrDefault(replica, 0) >= options.getMaximumRangesPerHost()) {
+        continue;
+      }
+      // with no live replica known, the load balancing policy decides
+      range.setReplica(replica);
+      if (replica != null) {
+        rangesPerHost.merge(replica, 1, Integer::sum);
+      }
+      ranges.remove();
+      return range;
+    }
+    return null;
+  }
+
+  /**
+   * Free the finished range's replica for another range.
+   *
+   * @param finished a range that is no longer active
+   */
+  private void release(ScanRange finished) {
+    Host replica = finished.getReplica();
+    if (replica != null) {
+      rangesPerHost.computeIfPresent(replica, (host, count) -> count == 1 ? null : count - 1);
+      notifyAll();
+    }
+  }
+
+  /**
+   * Divide the ring along the token ranges known to the driver.
+   *
+   * @return the ranges, in token order
+   */
+  private List<ScanRange> replicaRanges() {
+    List<ScanRange> ranges = new ArrayList<>();
+    for (TokenRange tokenRange : session.getCluster().getMetadata().getTokenRanges()) {
+      if (tokenRange.getStart().equals(tokenRange.getEnd())) {
+        // a single token owns the whole ring
+        return ScanRange.splitRing(options.getParallelism());
+      }
+      for (TokenRange unwrapped : tokenRange.unwrap()) {
+        // token ranges exclude their start, and the minimum token as an end means the end of the ring
+        long start = (Long) unwrapped.getStart().getValue();
+        long end = (Long) unwrapped.getEnd().getValue();
+        if (start != ScanRange.MAXIMUM_TOKEN) {
+          ranges.add(new ScanRange(start + 1, end == ScanRange.MINIMUM_TOKEN ? ScanRange.MAXIMUM_TOKEN : end));
+        }
+      }
+    }
+    ranges.sort(Comparator.comparingLong(ScanRange::getStart));
+    return ranges;
+  }
+
+  /**
+   *
+   * @return the keyspace containing the table
+   */
+  private String keyspace() {
+    return definition.keyspace() != null ? definition.keyspace() : session.getLoggedKeyspace();
+  }
+
+  /**
+   * Stop all remaining work; active ranges end after their current page.
+   * Pending and active ranges are retained for {@link #writeCheckpoint()}.
+   */
+  synchronized void stop() {
+    stopped = true;
+    active.forEach(ScanRange::stop);
+    notifyAll();
+  }
+
+  /**
+   *
+   * @return the fraction of the token ring that has been scanned
+   */
+  synchronized double progress() {
+    double remaining = 0.0;
+    for (ScanRange range : active) {
+      remaining += range.remainingFraction();
+    }
+    for (ScanRange range : pending) {
+      remaining += range.remainingFraction();
+    }
+    return Math.max(0.0, 1.0 - remaining);
+  }
+
+  /**
+   * Record every unfinished range in the {@link ScanCheckpoint}.
+   */
+  void writeCheckpoint() {
+    List<ScanRange> unfinished;
+    synchronized (this) {
+      unfinished = new ArrayList<>(active);
+      unfinished.addAll(pending);
+    }
+    try {
+      checkpoint.write(unfinished);
+      logger.debug("recorded {} unfinished ranges of {} in {}", unfinished.size(), definition.table(), checkpoint.getFile());
+    } catch (RuntimeException e) {
+      // a failed checkpoint shouldn't fail the scan; the previous checkpoint is still intact
+      logger.warn("failed to record checkpoint for scan of {}", definition.table(), e);
+    }
+  }
+
+  /**
+   *
+   * @return the upper half of the active range with the most remaining tokens, or null if no range can be split
+   */
+  private ScanRange splitLargestActive() {
+    ScanRange largest = null;
+    for (ScanRange range : active) {
+      if (largest == null || Long.compareUnsigned(range.remaining(), largest.remaining()) > 0) {
+        largest = range;
+      }
+    }
+    if (largest == null) {
+      return null;
+    }
+    ScanRange split = largest.split();
+    if (split != null) {
+      logger.debug("split {} to create {}", largest, split);
+    }
+    return split;
+  }
+
+  private static ThreadFactory threadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder()
+      .setNameFormat(nameFormat)
+      .setDaemon(true)
+      .build();
+  }
+}
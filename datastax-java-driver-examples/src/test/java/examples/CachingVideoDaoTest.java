@@ -0,0 +1,125 @@
+package examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CachingVideoDao}.
+ */
+public class CachingVideoDaoTest {
+
+  private final VideoDao delegate = mock(VideoDao.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final CachingVideoDao dao = new CachingVideoDao(delegate, "maximumSize=100", metrics, "cache");
+  private final Video a = new Video().setVideoId(UUID.randomUUID()).setTitle("a");
+  private final Video b = new Video().setVideoId(UUID.randomUUID()).setTitle("b");
+
+  /**
+   * Given: one stored video
+   * When: retrieve it, and a missing id, twice each
+   * Then: the stored video is only read once, the missing id is read each time
+   */
+  @Test
+  public void retrieve_readThrough() {
+    UUID missing = UUID.randomUUID();
+    when(delegate.retrieve(a.getVideoId())).thenReturn(a);
+
+    assertSame(a, dao.retrieve(a.getVideoId()));
+    assertSame(a, dao.retrieve(a.getVideoId()));
+    assertNull(dao.retrieve(missing));
+    assertNull(dao.retrieve(missing));
+
+    verify(delegate, times(1)).retrieve(a.getVideoId());
+    verify(delegate, times(2)).retrieve(missing);
+    assertEquals(1L, metrics.getGauges().get("cache.hits").getValue());
+    assertEquals(3L, metrics.getGauges().get("cache.misses").getValue());
+  }
+
+  /**
+   * Given: a cached video
+   * When: save it
+   * Then: the next retrieve reads it again
+   */
+  @Test
+  public void save_invalidates() {
+    Video updated = new Video().setVideoId(a.getVideoId()).setTitle("updated");
+    when(delegate.retrieve(a.getVideoId())).thenReturn(a).thenReturn(updated);
+    when(delegate.save(updated)).thenReturn(updated);
+
+    assertSame(a, dao.retrieve(a.getVideoId()));
+    dao.save(updated);
+
+    assertSame(updated, dao.retrieve(a.getVideoId()));
+  }
+
+  /**
+   * Given: an asynchronous lookup still in flight
+   * When: save the video, then the lookup completes with the video as it was before the save
+   * Then: the stale video isn't cached, so the next retrieve reads the saved one
+   */
+  @Test
+  public void retrieveAsync_racesSave() {
+    Video updated = new Video().setVideoId(a.getVideoId()).setTitle("updated");
+    CompletableFuture<Video> lookup = new CompletableFuture<>();
+    when(delegate.retrieveAsync(a.getVideoId())).thenReturn(lookup);
+    when(delegate.save(updated)).thenReturn(updated);
+    when(delegate.retrieve(a.getVideoId())).thenReturn(updated);
+
+    CompletableFuture<Video> stale = dao.retrieveAsync(a.getVideoId());
+    dao.save(updated);
+    lookup.complete(a);
+
+    assertSame(a, stale.join());
+    assertSame(updated, dao.retrieve(a.getVideoId()));
+  }
+
+  /**
+   * Given: a video saved while retrieveAll() is reading it
+   * When: retrieveAll() returns the video as it was before the save
+   * Then: the stale video isn't cached
+   */
+  @Test
+  public void retrieveAll_racesSave() {
+    Video updated = new Video().setVideoId(a.getVideoId()).setTitle("updated");
+    when(delegate.retrieveAll(ImmutableList.of(a.getVideoId()))).thenAnswer(invocation -> {
+      dao.save(updated);
+      return ImmutableMap.of(a.getVideoId(), a);
+    });
+    when(delegate.retrieve(a.getVideoId())).thenReturn(updated);
+
+    dao.retrieveAll(ImmutableList.of(a.getVideoId()));
+
+    assertSame(updated, dao.retrieve(a.getVideoId()));
+  }
+
+  /**
+   * Given: a cached video
+   * When: retrieveAll() with the cached id, and a duplicated id that isn't cached
+   * Then: only the uncached id is passed to the delegate, and videos are returned in the order of the ids
+   */
+  @Test
+  public void retrieveAll_onlyMisses() {
+    when(delegate.retrieve(a.getVideoId())).thenReturn(a);
+    when(delegate.retrieveAll(ImmutableList.of(b.getVideoId()))).thenReturn(ImmutableMap.of(b.getVideoId(), b));
+    dao.retrieve(a.getVideoId());
+
+    Map<UUID, Video> videos = dao.retrieveAll(ImmutableList.of(b.getVideoId(), a.getVideoId(), b.getVideoId()));
+
+    assertEquals(ImmutableList.of(b.getVideoId(), a.getVideoId()), ImmutableList.copyOf(videos.keySet()));
+    assertSame(b, dao.retrieve(b.getVideoId()));
+    verify(delegate, times(1)).retrieveAll(ImmutableList.of(b.getVideoId()));
+  }
+}
@@ -0,0 +1,105 @@
+package examples;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CoalescingVideoDao}.
+ */
+public class CoalescingVideoDaoTest {
+
+  private final VideoDao delegate = mock(VideoDao.class);
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final Video a = new Video().setVideoId(UUID.randomUUID()).setTitle("a");
+  private final Video b = new Video().setVideoId(UUID.randomUUID()).setTitle("b");
+
+  @After
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Given: a maximum batch size of 2 and a long linger
+   * When: save 2 videos asynchronously
+   * Then: both are written in one saveEach as soon as the second is queued, and each future completes with its video
+   */
+  @Test
+  public void saveAsync_batchSize() {
+    when(delegate.saveEach(ImmutableList.of(a, b)))
+      .thenReturn(CompletableFuture.completedFuture(new SaveResult().saved(a).saved(b)));
+    CoalescingVideoDao dao = new CoalescingVideoDao(delegate, 2, Duration.ofHours(1L), scheduler);
+
+    CompletableFuture<Video> first = dao.saveAsync(a);
+    assertFalse(first.isDone());
+    CompletableFuture<Video> second = dao.saveAsync(b);
+
+    assertSame(a, first.join());
+    assertSame(b, second.join());
+    verify(delegate, times(1)).saveEach(ImmutableList.of(a, b));
+  }
+
+  /**
+   * Given: a large maximum batch size and a short linger
+   * When: save 1 video
+   * Then: it is written alone once the linger expires
+   */
+  @Test
+  public void save_linger() {
+    when(delegate.saveEach(ImmutableList.of(a)))
+      .thenReturn(CompletableFuture.completedFuture(new SaveResult().saved(a)));
+    CoalescingVideoDao dao = new CoalescingVideoDao(delegate, 100, Duration.ofMillis(10L), scheduler);
+
+    assertSame(a, dao.save(a));
+    verify(delegate, never()).save(any(Video.class));
+  }
+
+  /**
+   * Given: a delegate that neither saves nor fails the video, e.g. the write wasn't applied
+   * When: save it
+   * Then: null, like {@link VideoDao#save(Video)}
+   */
+  @Test
+  public void save_notSaved() {
+    when(delegate.saveEach(ImmutableList.of(a)))
+      .thenReturn(CompletableFuture.completedFuture(new SaveResult()));
+    CoalescingVideoDao dao = new CoalescingVideoDao(delegate, 1, Duration.ofHours(1L), scheduler);
+
+    assertNull(dao.save(a));
+  }
+
+  /**
+   * Given: a batch in which one video fails
+   * When: save both videos
+   * Then: only the failed video's future completes exceptionally, with its own cause
+   */
+  @Test
+  public void saveAsync_failsIndividually() {
+    IllegalStateException cause = new IllegalStateException("write timed out");
+    when(delegate.saveEach(ImmutableList.of(a, b)))
+      .thenReturn(CompletableFuture.completedFuture(new SaveResult().saved(a).failed(b, cause)));
+    CoalescingVideoDao dao = new CoalescingVideoDao(delegate, 100, Duration.ofHours(1L), scheduler);
+
+    CompletableFuture<Video> first = dao.saveAsync(a);
+    CompletableFuture<Video> second = dao.saveAsync(b);
+    dao.flush();
+
+    assertSame(a, first.join());
+    assertSame(cause, second.handle((video, error) -> error).join());
+  }
+}
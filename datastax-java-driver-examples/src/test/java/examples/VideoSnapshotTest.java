@@ -0,0 +1,62 @@
+package examples;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link VideoSnapshotWriter} and {@link VideoSnapshotReader}.
+ */
+public class VideoSnapshotTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Given: videos with and without optional fields, with a buffer smaller than some records
+   * When: write a snapshot and read it back
+   * Then: every video is read in the order written
+   */
+  @Test
+  public void roundTrip() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("videos.snapshot");
+    List<Video> videos = Arrays.asList(
+      new Video().setVideoId(UUID.randomUUID())
+        .setAdded(Instant.ofEpochMilli(1_500_000_000_000L))
+        .setUserId(UUID.randomUUID())
+        .setTitle("title")
+        .setDescription("d\u00e9scription"),
+      new Video().setVideoId(UUID.randomUUID()),
+      new Video().setVideoId(UUID.randomUUID()).setTitle(String.join("", Collections.nCopies(100, "long"))));
+    try (VideoSnapshotWriter writer = new VideoSnapshotWriter(file, 64)) {
+      videos.forEach(writer);
+      assertEquals(3L, writer.getCount());
+    }
+
+    try (VideoSnapshotReader reader = new VideoSnapshotReader(file)) {
+      assertEquals(videos, reader.stream().collect(Collectors.toList()));
+      List<UUID> ids = new ArrayList<>();
+      reader.forEachVideoId((msb, lsb) -> ids.add(new UUID(msb, lsb)));
+      assertEquals(videos.stream().map(Video::getVideoId).collect(Collectors.toList()), ids);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void reader_notSnapshot() throws IOException {
+    Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, "not a snapshot".getBytes("UTF-8"));
+    new VideoSnapshotReader(file);
+  }
+}
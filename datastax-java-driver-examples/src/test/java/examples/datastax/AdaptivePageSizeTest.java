@@ -0,0 +1,92 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AdaptivePageSize}.
+ *
+ * @author https://github.com/nblair
+ */
+public class AdaptivePageSizeTest {
+
+  private static final long TEN_MILLIS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Test
+  public void pageSize_startsAtMinimum() {
+    assertEquals(100, new AdaptivePageSize(100, 10000, Duration.ofMillis(100), 1024L * 1024).pageSize());
+  }
+
+  /**
+   * Given: full pages that are 10x faster than the target
+   * When: several pages are recorded
+   * Then: page size at most doubles per page, until reaching the maximum
+   */
+  @Test
+  public void onPage_fast_growsToMaximum() {
+    AdaptivePageSize pages = new AdaptivePageSize(100, 1000, Duration.ofMillis(100), Long.MAX_VALUE);
+    pages.onPage(100, 0L, TEN_MILLIS);
+    assertEquals(200, pages.pageSize());
+    pages.onPage(200, 0L, TEN_MILLIS);
+    assertEquals(400, pages.pageSize());
+    pages.onPage(400, 0L, TEN_MILLIS);
+    assertEquals(800, pages.pageSize());
+    pages.onPage(800, 0L, TEN_MILLIS);
+    assertEquals(1000, pages.pageSize());
+  }
+
+  /**
+   * Given: full pages that take 10x the target latency
+   * When: a page is recorded
+   * Then: page size moves halfway towards the ideal, never below the minimum
+   */
+  @Test
+  public void onPage_slow_shrinks() {
+    AdaptivePageSize pages = new AdaptivePageSize(10, 1000, Duration.ofMillis(1), Long.MAX_VALUE);
+    pages.onPage(10, 0L, 1000L);
+    pages.onPage(20, 0L, 1000L);
+    assertEquals(40, pages.pageSize());
+    // 40 rows take 10ms, ideal is 4
+    pages.onPage(40, 0L, TEN_MILLIS);
+    assertEquals(22, pages.pageSize());
+    pages.onPage(22, 0L, TEN_MILLIS);
+    assertEquals(12, pages.pageSize());
+    pages.onPage(12, 0L, TEN_MILLIS);
+    assertEquals(10, pages.pageSize());
+  }
+
+  /**
+   * Given: fast pages of wide rows
+   * When: a page is recorded
+   * Then: page size is limited by the maximum page bytes
+   */
+  @Test
+  public void onPage_wideRows_limitedByBytes() {
+    AdaptivePageSize pages = new AdaptivePageSize(100, 10000, Duration.ofSeconds(1), 100L * 1000);
+    // 1000 bytes per row, ideal is 100 rows
+    pages.onPage(100, 100L * 1000, TEN_MILLIS);
+    assertEquals(100, pages.pageSize());
+  }
+
+  /**
+   * Given: a short page (the end of a range)
+   * When: the page is recorded
+   * Then: page size doesn't grow
+   */
+  @Test
+  public void onPage_shortPage_doesNotGrow() {
+    AdaptivePageSize pages = new AdaptivePageSize(100, 10000, Duration.ofSeconds(1), Long.MAX_VALUE);
+    pages.onPage(3, 0L, 1L);
+    assertEquals(100, pages.pageSize());
+    pages.onPage(0, 0L, TimeUnit.SECONDS.toNanos(10));
+    assertEquals(100, pages.pageSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_invalidBounds() {
+    new AdaptivePageSize(100, 10, Duration.ofSeconds(1), 1L);
+  }
+}
@@ -0,0 +1,48 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.PerHostPercentileTracker;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClusterOptions}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ClusterOptionsTest {
+
+  @Test
+  public void loadBalancingPolicy_tokenAware() {
+    LoadBalancingPolicy policy = new ClusterOptions().setLocalDataCenter("dc1").loadBalancingPolicy();
+    assertTrue(policy instanceof ReplicaRoutingPolicy);
+    LoadBalancingPolicy child = ((ReplicaRoutingPolicy) policy).getChildPolicy();
+    assertTrue(child instanceof TokenAwarePolicy);
+    assertTrue(((TokenAwarePolicy) child).getChildPolicy() instanceof DCAwareRoundRobinPolicy);
+  }
+
+  @Test
+  public void loadBalancingPolicy_notTokenAware() {
+    LoadBalancingPolicy policy = new ClusterOptions().setTokenAware(false).loadBalancingPolicy();
+    assertTrue(((ReplicaRoutingPolicy) policy).getChildPolicy() instanceof DCAwareRoundRobinPolicy);
+  }
+
+  /**
+   * The tracker behind {@link ClusterOptions.SpeculativeExecution#PERCENTILE} records latencies in
+   * HdrHistogram, an optional dependency of the driver.
+   */
+  @Test
+  public void percentileTracker_recordsLatency() {
+    PerHostPercentileTracker tracker = PerHostPercentileTracker.builder(1000L).build();
+    tracker.onRegister(mock(Cluster.class));
+    tracker.update(mock(Host.class), mock(Statement.class), null, TimeUnit.MILLISECONDS.toNanos(5L));
+  }
+}
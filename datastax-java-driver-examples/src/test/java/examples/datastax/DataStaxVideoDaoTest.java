@@ -0,0 +1,664 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import examples.SaveResult;
+import examples.Video;
+import examples.VideoPage;
+import examples.datastax.DataStaxVideoDao.WriteMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DataStaxVideoDao}.
+ *
+ * @author https://github.com/nblair
+ */
+public class DataStaxVideoDaoTest {
+
+  private final Session session = mock(Session.class);
+  private final List<Statement> executed = new CopyOnWriteArrayList<>();
+  private final List<PendingResultSetFuture> inFlight = new CopyOnWriteArrayList<>();
+  private final Map<Statement, Object> firstValues = new ConcurrentHashMap<>();
+  private final ResultSet applied = mock(ResultSet.class);
+  private volatile int maximumInFlight;
+
+  @Before
+  public void setup() {
+    PreparedStatement prepared = mock(PreparedStatement.class);
+    when(prepared.bind(anyVararg())).thenAnswer(invocation -> {
+      BoundStatement bound = mock(BoundStatement.class);
+      firstValues.put(bound, invocation.getArguments()[0]);
+      return bound;
+    });
+    when(session.prepare(any(RegularStatement.class))).thenReturn(prepared);
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      executed.add((Statement) invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      inFlight.add(future);
+      maximumInFlight = Math.max(maximumInFlight, (int) inFlight.stream().filter(f -> !f.isDone()).count());
+      return future;
+    });
+    when(applied.wasApplied()).thenReturn(true);
+  }
+
+  /**
+   * Given: 5 videos in 4 partitions, and at most 2 writes in flight
+   * When: saveEach(), completing one write with a failure
+   * Then: one write per partition (an unlogged batch for the shared partition), never more than 2 in
+   * flight, and only the video of the failed write is reported failed
+   */
+  @Test
+  public void saveEach_partitioned() throws InterruptedException, ExecutionException {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setWriteMode(WriteMode.PARTITIONED)
+      .setMaximumWritesInFlight(2);
+    UUID shared = UUID.randomUUID();
+    Video a1 = new Video().setVideoId(shared).setTitle("a1");
+    Video a2 = new Video().setVideoId(shared).setTitle("a2");
+    Video b = new Video().setTitle("b");
+    Video c = new Video().setTitle("c");
+    Video d = new Video().setTitle("d");
+
+    CompletableFuture<SaveResult> future = dao.saveEach(ImmutableList.of(a1, a2, b, c, d));
+    assertEquals(2, executed.size());
+    inFlight.get(0).set(applied);
+    assertEquals(3, executed.size());
+    WriteTimeoutException timeout = mock(WriteTimeoutException.class);
+    inFlight.get(1).setException(timeout);
+    assertEquals(4, executed.size());
+    assertFalse(future.isDone());
+    inFlight.get(2).set(applied);
+    inFlight.get(3).set(applied);
+
+    SaveResult result = future.get();
+    assertEquals(2, maximumInFlight);
+    assertTrue(executed.get(0) instanceof BatchStatement);
+    assertEquals(2, ((BatchStatement) executed.get(0)).size());
+    assertEquals(ImmutableList.of(a1, a2, c, d), result.getSaved());
+    assertEquals(1, result.getFailed().size());
+    assertSame(timeout, result.getFailed().get(b));
+    // ids were generated for the videos without one
+    assertNotNull(b.getVideoId());
+  }
+
+  /**
+   * Given: partitioned writes with metrics
+   * When: saveEach() 3 videos in 2 partitions, one write not applied and one failed
+   * Then: both writes are timed, rows per write are recorded, and the failures are counted apart
+   */
+  @Test
+  public void saveEach_metrics() {
+    MetricRegistry registry = new MetricRegistry();
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setWriteMode(WriteMode.PARTITIONED)
+      .setMetrics(new DaoMetrics(registry, "dao"));
+    UUID shared = UUID.randomUUID();
+    ResultSet notApplied = mock(ResultSet.class);
+
+    CompletableFuture<SaveResult> future = dao.saveEach(ImmutableList.of(
+      new Video().setVideoId(shared), new Video().setVideoId(shared), new Video()));
+    inFlight.get(0).set(notApplied);
+    inFlight.get(1).setException(mock(WriteTimeoutException.class));
+
+    assertTrue(future.join().getSaved().isEmpty());
+    assertEquals(2L, registry.timer("dao.writeLatency").getCount());
+    assertEquals(2L, registry.histogram("dao.rowsPerWrite").getSnapshot().getMax());
+    assertEquals(1L, registry.histogram("dao.rowsPerWrite").getSnapshot().getMin());
+    assertEquals(1L, registry.meter("dao.notApplied").getCount());
+    assertEquals(1L, registry.meter("dao.writeFailures").getCount());
+  }
+
+  /**
+   * Given: read options
+   * When: retrieveAsync()
+   * Then: the lookup is idempotent (so it may be executed speculatively), with the configured consistency level and timeout
+   */
+  @Test
+  public void retrieveAsync_readOptions() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setReadOptions(ConsistencyLevel.LOCAL_QUORUM, java.time.Duration.ofMillis(500L));
+
+    dao.retrieveAsync(UUID.randomUUID());
+
+    Statement statement = executed.get(0);
+    verify(statement).setIdempotent(true);
+    verify(statement).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+    verify(statement).setReadTimeoutMillis(500);
+  }
+
+  /**
+   * Given: partitioned writes
+   * When: save(), with every write applied
+   * Then: every video is returned
+   */
+  @Test
+  public void save_partitioned() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setWriteMode(WriteMode.PARTITIONED);
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(applied);
+      return future;
+    });
+    List<Video> videos = ImmutableList.of(new Video(), new Video(), new Video());
+
+    Collection<Video> saved = dao.save(videos);
+
+    assertEquals(videos, saved);
+  }
+
+  /**
+   * Given: 4 ids including a duplicate, one without a video, and at most 2 lookups in flight
+   * When: retrieveAll() with a consumer, with the lookups completing out of order
+   * Then: each distinct id is looked up once, never more than 2 at a time, and videos are consumed as they arrive
+   */
+  @Test
+  public void retrieveAll_completionOrder() throws InterruptedException {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setMaximumReadsInFlight(2);
+    UUID x = UUID.randomUUID();
+    UUID y = UUID.randomUUID();
+    UUID missing = UUID.randomUUID();
+    Thread completer = new Thread(() -> {
+      awaitExecuted(2);
+      // y completes first, and frees a slot for the id without a video
+      inFlight.get(1).set(found(y));
+      awaitExecuted(3);
+      inFlight.get(2).set(mock(ResultSet.class));
+      inFlight.get(0).set(found(x));
+    });
+    completer.start();
+    List<UUID> consumed = new ArrayList<>();
+
+    dao.retrieveAll(ImmutableList.of(x, y, x, missing), video -> consumed.add(video.getVideoId()));
+
+    completer.join();
+    assertEquals(ImmutableList.of(x, y, missing), executed.stream().map(firstValues::get).collect(Collectors.toList()));
+    assertEquals(2, maximumInFlight);
+    assertEquals(ImmutableList.of(y, x), consumed);
+  }
+
+  /**
+   * Given: ids including a duplicate and one without a video
+   * When: retrieveAll()
+   * Then: the videos found, in the order of the ids
+   */
+  @Test
+  public void retrieveAll_inputOrder() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID x = UUID.randomUUID();
+    UUID y = UUID.randomUUID();
+    UUID missing = UUID.randomUUID();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      UUID videoId = (UUID) firstValues.get(invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(videoId.equals(missing) ? mock(ResultSet.class) : found(videoId));
+      return future;
+    });
+
+    Map<UUID, Video> videos = dao.retrieveAll(ImmutableList.of(y, missing, x, y));
+
+    assertEquals(ImmutableList.of(y, x), ImmutableList.copyOf(videos.keySet()));
+    assertEquals(x, videos.get(x).getVideoId());
+  }
+
+  /**
+   * Given: a video with a user
+   * When: save() it
+   * Then: it is also written to the by user table, and is saved once both writes are applied
+   */
+  @Test
+  public void save_byUser() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID userId = UUID.randomUUID();
+    Video video = new Video().setUserId(userId).setAdded(Instant.now());
+
+    CompletableFuture<Video> future = dao.saveAsync(video);
+    assertEquals(3, executed.size());
+    assertEquals(userId, firstValues.get(executed.get(1)));
+    assertEquals(DataStaxVideoDao.day(video.getAdded()), firstValues.get(executed.get(2)));
+    inFlight.get(0).set(applied);
+    inFlight.get(1).set(applied);
+    assertFalse(future.isDone());
+    inFlight.get(2).set(applied);
+
+    assertSame(video, future.join());
+  }
+
+  /**
+   * Given: moved rows not deleted, the default
+   * When: save() a video with its id and a user
+   * Then: it is written without reading the stored video first
+   */
+  @Test
+  public void save_noReadByDefault() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    Video video = new Video().setVideoId(UUID.randomUUID()).setUserId(UUID.randomUUID()).setAdded(Instant.now());
+
+    dao.saveAsync(video);
+
+    assertEquals(3, executed.size());
+    assertEquals(video.getVideoId(), firstValues.get(executed.get(0)));
+  }
+
+  /**
+   * Given: a stored video with a user, and moved rows deleted
+   * When: save() it with its id and another user
+   * Then: the stored video is read first, and its previous by user row is deleted as the new rows are written
+   */
+  @Test
+  public void save_movesUser() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session)
+      .setDeleteMovedRows(true);
+    UUID videoId = UUID.randomUUID();
+    UUID previousUser = UUID.randomUUID();
+    UUID newUser = UUID.randomUUID();
+    Instant added = Instant.ofEpochMilli(System.currentTimeMillis());
+    ResultSet stored = found(videoId);
+    Row row = stored.one();
+    when(row.getUUID("user_id")).thenReturn(previousUser);
+    when(row.getTimestamp("added_date")).thenReturn(Date.from(added));
+    Video video = new Video().setVideoId(videoId).setUserId(newUser);
+
+    CompletableFuture<Video> future = dao.saveAsync(video);
+    assertEquals(1, executed.size());
+    inFlight.get(0).set(stored);
+
+    assertEquals(5, executed.size());
+    assertEquals(videoId, firstValues.get(executed.get(1)));
+    assertEquals(previousUser, firstValues.get(executed.get(2)));
+    assertEquals(newUser, firstValues.get(executed.get(3)));
+    assertEquals(DataStaxVideoDao.day(added), firstValues.get(executed.get(4)));
+    inFlight.subList(1, 5).forEach(write -> write.set(applied));
+    assertSame(video, future.join());
+  }
+
+  /**
+   * Given: logged batches
+   * When: save() 2 new videos
+   * Then: the batch only holds the inserts into the videos table, and the latest rows are written once it is applied
+   */
+  @Test
+  public void save_loggedBatch() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    Instant added = Instant.now();
+    List<Video> videos = ImmutableList.of(new Video().setAdded(added), new Video().setAdded(added));
+
+    CompletableFuture<Collection<Video>> future = dao.saveAsync(videos);
+    assertEquals(1, executed.size());
+    assertEquals(2, ((BatchStatement) executed.get(0)).size());
+    inFlight.get(0).set(applied);
+    assertEquals(3, executed.size());
+    inFlight.get(1).set(applied);
+    assertFalse(future.isDone());
+    inFlight.get(2).set(applied);
+
+    assertEquals(videos, future.join());
+  }
+
+  /**
+   * Given: a video with only a title
+   * When: saveAsync()
+   * Then: the null columns are left unset rather than bound to null
+   */
+  @Test
+  public void save_unsetsNulls() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+
+    dao.saveAsync(new Video().setTitle("title"));
+    assertEquals(1, executed.size());
+    BoundStatement insert = (BoundStatement) executed.get(0);
+    verify(insert).unset(1);
+    verify(insert).unset(2);
+    verify(insert).unset(4);
+    verify(insert, never()).unset(0);
+    verify(insert, never()).unset(3);
+  }
+
+  /**
+   * Given: an existing video without a user
+   * When: patch() of its title
+   * Then: only the title is written to the video's row and its latest row, and the patched video is returned
+   */
+  @Test
+  public void patch_writesPatchedFields() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID videoId = UUID.randomUUID();
+    ResultSet rs = found(videoId);
+    when(rs.wasApplied()).thenReturn(true);
+    when(rs.getExecutionInfo()).thenReturn(mock(ExecutionInfo.class));
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+
+    Video patched = dao.patch(new Video().setVideoId(videoId).setTitle("patched"));
+
+    assertEquals(videoId, patched.getVideoId());
+    assertEquals("patched", patched.getTitle());
+    assertNotNull(patched.getAdded());
+    assertEquals(3, statements.size());
+    BoundStatement insert = (BoundStatement) statements.get(1);
+    assertEquals(videoId, firstValues.get(insert));
+    verify(insert).unset(1);
+    verify(insert).unset(2);
+    verify(insert, never()).unset(3);
+    BoundStatement latest = (BoundStatement) statements.get(2);
+    assertEquals(DataStaxVideoDao.day(patched.getAdded()), firstValues.get(latest));
+    verify(latest, never()).unset(1);
+    verify(latest).unset(3);
+    verify(latest, never()).unset(4);
+  }
+
+  /**
+   * Given: a stored video
+   * When: patch() its added date to the day before
+   * Then: its previous latest row is deleted, and the patched video is written to the new one
+   */
+  @Test
+  public void patch_movesAdded() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID videoId = UUID.randomUUID();
+    ResultSet rs = found(videoId);
+    Instant previous = rs.one().getTimestamp("added_date").toInstant();
+    when(rs.wasApplied()).thenReturn(true);
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+    Instant added = previous.minus(1, ChronoUnit.DAYS);
+
+    Video patched = dao.patch(new Video().setVideoId(videoId).setAdded(added));
+
+    assertEquals(added, patched.getAdded());
+    assertEquals(4, statements.size());
+    assertEquals(DataStaxVideoDao.day(previous), firstValues.get(statements.get(2)));
+    assertEquals(DataStaxVideoDao.day(added), firstValues.get(statements.get(3)));
+  }
+
+  /**
+   * Given: a stored video without an added date
+   * When: retrieve()
+   * Then: the video, with a null added date
+   */
+  @Test
+  public void retrieve_noAddedDate() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID videoId = UUID.randomUUID();
+    ResultSet rs = found(videoId);
+    when(rs.one().getTimestamp("added_date")).thenReturn(null);
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+
+    Video video = dao.retrieve(videoId);
+
+    assertEquals(videoId, video.getVideoId());
+    assertNull(video.getAdded());
+  }
+
+  /**
+   * Given: no video with the id
+   * When: patch()
+   * Then: null, without writing
+   */
+  @Test
+  public void patch_notFound() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID videoId = UUID.randomUUID();
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getExecutionInfo()).thenReturn(mock(ExecutionInfo.class));
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+
+    assertNull(dao.patch(new Video().setVideoId(videoId).setTitle("patched")));
+    assertEquals(1, statements.size());
+  }
+
+  /**
+   * Given: a video added today and one added yesterday, reading 2 days at a time
+   * When: retrieveLatest() with a limit of 2, then again with the returned cursor
+   * Then: today is read alone for the first page, then yesterday and the oldest day concurrently since
+   * today was short; the second page reads from yesterday until the oldest day, without a cursor for
+   * a next page
+   */
+  @Test
+  public void retrieveLatest_walksDays() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session).setLatestOptions(3, 2);
+    Instant now = Instant.now();
+    Instant yesterday = now.minus(1, ChronoUnit.DAYS);
+    Row today = latest(now);
+    Row older = latest(yesterday);
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      Statement statement = (Statement) invocation.getArguments()[0];
+      statements.add(statement);
+      Object day = firstValues.get(statement);
+      ResultSet rs = mock(ResultSet.class);
+      List<Row> rows = DataStaxVideoDao.day(now).equals(day) ? ImmutableList.of(today)
+        : DataStaxVideoDao.day(yesterday).equals(day) ? ImmutableList.of(older) : ImmutableList.of();
+      when(rs.iterator()).thenReturn(rows.iterator());
+      when(rs.getExecutionInfo()).thenReturn(mock(ExecutionInfo.class));
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+
+    VideoPage first = dao.retrieveLatest(null, 2);
+    assertEquals(3, statements.size());
+    assertEquals(DataStaxVideoDao.day(now), firstValues.get(statements.get(0)));
+    assertEquals(DataStaxVideoDao.day(yesterday), firstValues.get(statements.get(1)));
+    assertEquals(DataStaxVideoDao.day(now.minus(2, ChronoUnit.DAYS)), firstValues.get(statements.get(2)));
+    assertEquals(2, first.getVideos().size());
+    assertEquals(yesterday.toEpochMilli(), first.getVideos().get(1).getAdded().toEpochMilli());
+    assertNotNull(first.getNext());
+
+    statements.clear();
+    VideoPage second = dao.retrieveLatest(first.getNext(), 2);
+    assertEquals(2, statements.size());
+    assertEquals(DataStaxVideoDao.day(yesterday), firstValues.get(statements.get(0)));
+    assertEquals(DataStaxVideoDao.day(now.minus(2, ChronoUnit.DAYS)), firstValues.get(statements.get(1)));
+    assertNull(second.getNext());
+  }
+
+  /**
+   * Given: 2 videos added today, reading up to 4 days at a time
+   * When: retrieveLatest() with a limit of 2
+   * Then: only today is read
+   */
+  @Test
+  public void retrieveLatest_busyDay() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session).setLatestOptions(7, 4);
+    Instant now = Instant.now();
+    List<Row> rows = ImmutableList.of(latest(now), latest(now));
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      ResultSet rs = mock(ResultSet.class);
+      when(rs.iterator()).thenReturn(rows.iterator());
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(rs);
+      return future;
+    });
+
+    VideoPage page = dao.retrieveLatest(null, 2);
+
+    assertEquals(1, statements.size());
+    assertEquals(2, page.getVideos().size());
+    assertNotNull(page.getNext());
+  }
+
+  /**
+   * Given: a cursor that wasn't returned by retrieveLatest
+   * When: retrieveLatest()
+   * Then: IllegalArgumentException, without querying
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void retrieveLatest_invalidCursor() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    try {
+      dao.retrieveLatest("not-a-cursor", 10);
+    } finally {
+      assertTrue(executed.isEmpty());
+    }
+  }
+
+  /**
+   * Given: a user with 2 videos, both fetched in the first page
+   * When: retrieveByUser()
+   * Then: both videos are returned, without a cursor for a next page
+   */
+  @Test
+  public void retrieveByUser_lastPage() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    UUID userId = UUID.randomUUID();
+    ResultSet page = mock(ResultSet.class);
+    Row first = found(UUID.randomUUID()).one();
+    Row second = found(UUID.randomUUID()).one();
+    when(page.getAvailableWithoutFetching()).thenReturn(2);
+    when(page.one()).thenReturn(first, second);
+    when(page.getExecutionInfo()).thenReturn(mock(ExecutionInfo.class));
+    List<Statement> statements = new ArrayList<>();
+    when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      PendingResultSetFuture future = new PendingResultSetFuture();
+      future.set(page);
+      return future;
+    });
+
+    VideoPage videos = dao.retrieveByUser(userId, null, 10);
+
+    assertEquals(2, videos.getVideos().size());
+    assertNull(videos.getNext());
+    assertEquals(1, statements.size());
+    assertEquals(userId, firstValues.get(statements.get(0)));
+    verify(statements.get(0)).setFetchSize(10);
+  }
+
+  /**
+   * Given: a cursor that isn't a paging state
+   * When: retrieveByUser()
+   * Then: IllegalArgumentException, without querying
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void retrieveByUser_invalidCursor() {
+    DataStaxVideoDao dao = new DataStaxVideoDao(session);
+    try {
+      dao.retrieveByUser(UUID.randomUUID(), "not-a-cursor", 10);
+    } finally {
+      assertTrue(executed.isEmpty());
+    }
+  }
+
+  private void awaitExecuted(int count) {
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (executed.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.yield();
+    }
+  }
+
+  private static Row latest(Instant added) {
+    Row row = mock(Row.class);
+    when(row.getUUID("video_id")).thenReturn(UUID.randomUUID());
+    when(row.getTimestamp("added_date")).thenReturn(Date.from(added));
+    return row;
+  }
+
+  private static ResultSet found(UUID videoId) {
+    Row row = mock(Row.class);
+    when(row.getUUID("video_id")).thenReturn(videoId);
+    when(row.getTimestamp("added_date")).thenReturn(new Date());
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.one()).thenReturn(row);
+    return resultSet;
+  }
+
+  /**
+   * {@link ResultSetFuture} completed by the test.
+   */
+  static final class PendingResultSetFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+    @Override
+    public boolean set(ResultSet value) {
+      return super.set(value);
+    }
+
+    @Override
+    public boolean setException(Throwable throwable) {
+      return super.setException(throwable);
+    }
+
+    @Override
+    public ResultSet getUninterruptibly() {
+      try {
+        return Uninterruptibles.getUninterruptibly(this);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    @Override
+    public ResultSet getUninterruptibly(long timeout, TimeUnit unit) throws TimeoutException {
+      try {
+        return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DriverFutures}.
+ *
+ * @author https://github.com/nblair
+ */
+public class DriverFuturesTest {
+
+  /**
+   * Given: many tasks that complete as soon as they start
+   * When: forEach()
+   * Then: every task runs, without overflowing the stack
+   */
+  @Test
+  public void forEach_synchronousTasks() {
+    List<Integer> items = Collections.nCopies(100000, 1);
+    AtomicInteger started = new AtomicInteger();
+
+    CompletableFuture<Void> done = DriverFutures.forEach(items, 2, item -> {
+      started.incrementAndGet();
+      return CompletableFuture.completedFuture(null);
+    });
+
+    assertTrue(done.isDone());
+    assertFalse(done.isCompletedExceptionally());
+    assertEquals(items.size(), started.get());
+  }
+
+  /**
+   * Given: 5 tasks and at most 2 in flight
+   * When: forEach(), completing the tasks one at a time
+   * Then: the next task starts as each completes, and the result completes with the last task
+   */
+  @Test
+  public void forEach_boundsInFlight() {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+    CompletableFuture<Void> done = DriverFutures.forEach(Collections.nCopies(5, 1), 2, item -> {
+      CompletableFuture<Void> task = new CompletableFuture<>();
+      tasks.add(task);
+      return task;
+    });
+
+    assertEquals(2, tasks.size());
+    tasks.get(0).complete(null);
+    assertEquals(3, tasks.size());
+    tasks.get(1).completeExceptionally(new IllegalStateException());
+    tasks.get(2).complete(null);
+    assertEquals(5, tasks.size());
+    tasks.get(3).complete(null);
+    assertFalse(done.isDone());
+    tasks.get(4).complete(null);
+    assertTrue(done.isDone());
+  }
+}
@@ -1,22 +1,46 @@
 package examples.datastax;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyVararg;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 /**
@@ -26,6 +50,9 @@ import org.mockito.Mockito;
  */
 public class FullTableScanTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void tokenColumn_control() {
     assertEquals("token(id)", control.tokenColumn());
@@ -35,6 +62,20 @@ public class FullTableScanTest {
     assertEquals("token(id1, id2)", compositeKey.tokenColumn());
   }
 
+  /**
+   * Given: a projection of the composite key table
+   * When: select a range
+   * Then: only the token, partition key and projected columns are selected, rows are not mapped
+   */
+  @Test
+  public void projection_select() {
+    FullTableScan<Row> projection = compositeKey.projection(ImmutableList.of("title"));
+    assertEquals("SELECT token(id1, id2),id1,id2,title FROM foo WHERE token(id1, id2)>=0 AND token(id1, id2)<=10;",
+      projection.select(new ScanRange(0L, 10L)).toString());
+    Row row = mock(Row.class);
+    assertSame(row, projection.mapRow(row));
+  }
+
   /**
    * Given: table is empty
    * When: run tableScan()
@@ -114,6 +155,312 @@ public class FullTableScanTest {
     verify(session, times(4)).execute(any(Statement.class));
   }
 
+  /**
+   * Given: a table with clustering columns, where the first page ends partway through a partition
+   * When: run tableScan()
+   * Then: the rest of the partition is read (after the last clustering position) before the next token
+   */
+  @Test
+  public void tableScan_clusteringColumns_continuesPartition() {
+    Session session = mock(Session.class);
+    List<Statement> statements = new CopyOnWriteArrayList<>();
+    when(session.execute(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      return wideResults.get(statements.size() - 1);
+    });
+    List<String> observed = new CopyOnWriteArrayList<>();
+
+    wide.tableScan(session, observed::add);
+
+    assertEquals(ImmutableList.of("a:1", "a:2", "a:3", "a:4", "a:5", "a:6", "a:7", "b:1", "c:1"), observed);
+    assertWideStatements(statements);
+  }
+
+  /**
+   * Given: a table with clustering columns, where the first page ends partway through a partition
+   * When: consume stream()
+   * Then: the rest of the partition is read (after the last clustering position) before the next token
+   */
+  @Test
+  public void stream_clusteringColumns_continuesPartition() {
+    Session session = mock(Session.class);
+    List<Statement> statements = new CopyOnWriteArrayList<>();
+    when(session.execute(any(Statement.class))).thenAnswer(invocation -> {
+      statements.add((Statement) invocation.getArguments()[0]);
+      return wideResults.get(statements.size() - 1);
+    });
+
+    List<String> observed = wide.stream(session).collect(Collectors.toList());
+
+    assertEquals(ImmutableList.of("a:1", "a:2", "a:3", "a:4", "a:5", "a:6", "a:7", "b:1", "c:1"), observed);
+    assertWideStatements(statements);
+  }
+
+  /**
+   * Given: a table with clustering columns, scanned with prepared statements
+   * When: run tableScan() twice with the same session
+   * Then: the range and partition queries are each prepared once, and each page binds its tokens or position
+   */
+  @Test
+  public void tableScan_preparedStatements() {
+    Session session = mock(Session.class);
+    List<String> prepared = new CopyOnWriteArrayList<>();
+    List<List<Object>> bound = new CopyOnWriteArrayList<>();
+    when(session.prepare(any(RegularStatement.class))).thenAnswer(invocation -> {
+      prepared.add(((RegularStatement) invocation.getArguments()[0]).getQueryString());
+      PreparedStatement statement = mock(PreparedStatement.class);
+      when(statement.bind(anyVararg())).thenAnswer(bind -> {
+        bound.add(Arrays.asList(bind.getArguments()));
+        BoundStatement boundStatement = mock(BoundStatement.class);
+        when(boundStatement.setFetchSize(anyInt())).thenReturn(boundStatement);
+        return boundStatement;
+      });
+      return statement;
+    });
+    AtomicInteger executed = new AtomicInteger();
+    when(session.execute(any(Statement.class)))
+      .thenAnswer(invocation -> wideResults.get(executed.getAndIncrement() % wideResults.size()));
+    TableScanOptions options = new TableScanOptions().setPreparedStatements(true);
+    FullTableScan<String> preparedWide = new WideScan() {
+      @Override
+      public TableScanOptions scanOptions() {
+        return options;
+      }
+    };
+    List<String> observed = new CopyOnWriteArrayList<>();
+
+    preparedWide.tableScan(session, observed::add);
+    preparedWide.tableScan(session, observed::add);
+
+    assertEquals(18, observed.size());
+    assertEquals(ImmutableList.of(
+      "SELECT token(id),id,seq FROM events WHERE token(id)>=? AND token(id)<=? LIMIT ?;",
+      "SELECT token(id),id,seq FROM events WHERE id=? AND (seq)>(?) LIMIT ?;"), prepared);
+    assertEquals(10, bound.size());
+    assertEquals(ImmutableList.of(ScanRange.MINIMUM_TOKEN, ScanRange.MAXIMUM_TOKEN, 3), bound.get(0));
+    assertEquals(ImmutableList.of("a", 3, 3), bound.get(1));
+    assertEquals(ImmutableList.of("a", 6, 3), bound.get(2));
+    assertEquals(ImmutableList.of(2L, ScanRange.MAXIMUM_TOKEN, 3), bound.get(3));
+  }
+
+  @Test
+  public void partitionStatement_descending() {
+    FullTableScan<String> descending = new WideScan() {
+      @Override
+      public boolean clusteringDescending() {
+        return true;
+      }
+    };
+    assertEquals("SELECT token(id),id,seq FROM events WHERE id='a' AND (seq)<(3) LIMIT 3;",
+      descending.partitionStatement(ScanRange.fullRing(), wideRow(1L, "a", 3), 3).toString());
+  }
+
+  private void assertWideStatements(List<Statement> statements) {
+    assertEquals(5, statements.size());
+    assertTrue(statements.get(0).toString().contains("token(id)>=" + ScanRange.MINIMUM_TOKEN));
+    assertEquals("SELECT token(id),id,seq FROM events WHERE id='a' AND (seq)>(3) LIMIT 3;", statements.get(1).toString());
+    assertTrue(statements.get(2).toString().contains("(seq)>(6)"));
+    // the partition is finished, move on to the next token
+    assertTrue(statements.get(3).toString().contains("token(id)>=2 "));
+    assertTrue(statements.get(4).toString().contains("token(id)>=10 "));
+  }
+
+  /**
+   * Given: driver paging is enabled
+   * When: run tableScan()
+   * Then: one statement is executed, the following pages are requested ahead of the consumer
+   */
+  @Test
+  public void tableScan_driverPaging_prefetch() {
+    AtomicInteger count = new AtomicInteger();
+    Session session = mock(Session.class);
+    ResultSet rs = mock(ResultSet.class);
+    FullTableScan<String> paged = new FullTableScan<String>() {
+      @Override
+      public String table() {
+        return "paged";
+      }
+
+      @Override
+      public List<String> partitionKeys() {
+        return ImmutableList.of("id");
+      }
+
+      @Override
+      public String mapRow(Row row) {
+        return row.getString("id");
+      }
+
+      @Override
+      public TableScanOptions scanOptions() {
+        return new TableScanOptions().setDriverPaging(true);
+      }
+    };
+
+    when(session.execute(any(Statement.class))).thenReturn(rs);
+    Row row = mock(Row.class);
+    when(rs.iterator()).thenReturn(new MockIterator(30, row));
+    // first page fully available (measured once, then at the first row), then the consumer is within the last available page
+    when(rs.getAvailableWithoutFetching()).thenReturn(paged.limit(), paged.limit(), 5);
+    when(rs.isFullyFetched()).thenReturn(false);
+
+    paged.tableScan(session, v -> count.incrementAndGet());
+
+    assertEquals(30, count.get());
+    verify(session, times(1)).execute(any(Statement.class));
+    verify(rs, times(29)).fetchMoreResults();
+  }
+
+  /**
+   * Given: table has ~3x {@link FullTableScan#limit()} rows
+   * When: stream() with a limit smaller than a page
+   * Then: only the first page is fetched
+   */
+  @Test
+  public void stream_shortCircuits() {
+    Session session = mock(Session.class);
+    ResultSet rs = mock(ResultSet.class);
+    when(session.execute(any(Statement.class))).thenReturn(rs);
+    Row row = mock(Row.class);
+    when(row.getString("id")).thenReturn("a");
+    when(rs.iterator())
+      .thenReturn(new MockIterator(control.limit(), row))
+      .thenReturn(new MockIterator(control.limit(), row))
+      .thenReturn(new MockIterator(control.limit(), row));
+
+    assertEquals(100, control.stream(session).limit(100).count());
+    verify(session, times(1)).execute(any(Statement.class));
+  }
+
+  /**
+   * Given: table has 2 pages of rows
+   * When: stream() is fully consumed
+   * Then: pages are fetched until an empty page, every row is observed
+   */
+  @Test
+  public void stream_multiplebatches() {
+    Session session = mock(Session.class);
+    ResultSet rs = mock(ResultSet.class);
+    when(session.execute(any(Statement.class))).thenReturn(rs);
+    Row row = mock(Row.class);
+    when(row.getString("id")).thenReturn("a");
+    when(rs.iterator())
+      .thenReturn(new MockIterator(control.limit(), row))
+      .thenReturn(new MockIterator(10, row))
+      .thenReturn(Collections.<Row>emptyList().iterator());
+
+    assertEquals(control.limit() + 10, control.stream(session).count());
+    verify(session, times(3)).execute(any(Statement.class));
+  }
+
+  /**
+   * A parallel stream divides the ring between spliterators covering contiguous ranges.
+   */
+  @Test
+  public void stream_trySplit() {
+    TableScanSpliterator<String> spliterator = new TableScanSpliterator<>(control, mock(Session.class), ScanRange.fullRing());
+    long before = spliterator.estimateSize();
+    TableScanSpliterator<String> upper = (TableScanSpliterator<String>) spliterator.trySplit();
+    assertTrue(upper.estimateSize() > 0);
+    assertTrue(spliterator.estimateSize() < before);
+    assertEquals(before, spliterator.estimateSize() + upper.estimateSize() + 1);
+  }
+
+  /**
+   * Given: all rows live in the first quarter of the ring
+   * When: run tableScan() with parallelism of 4
+   * Then: the busy range is split across idle workers, every row is observed exactly once
+   */
+  @Test
+  public void tableScan_parallel_splitsBusyRange() {
+    NavigableSet<Long> tokens = new TreeSet<>();
+    for (long i = 0; i < 1000; i++) {
+      tokens.add(ScanRange.MINIMUM_TOKEN + (i << 51));
+    }
+    Multiset<Long> observed = ConcurrentHashMultiset.create();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    FullTableScan<Long> parallel = new TokenSetScan(tokens, 4);
+
+    parallel.tableScan(mock(Session.class), t -> {
+      observed.add(t);
+      threads.add(Thread.currentThread().getName());
+    });
+
+    assertEquals(tokens.size(), observed.size());
+    assertEquals(tokens, observed.elementSet());
+    assertTrue("expected the busy range to be split, only saw " + threads, threads.size() > 1);
+  }
+
+  /**
+   * Given: scan metrics are enabled
+   * When: run tableScan()
+   * Then: progress is reported while running, and is complete afterwards
+   */
+  @Test
+  public void tableScan_metrics_progress() {
+    NavigableSet<Long> tokens = new TreeSet<>();
+    for (long i = 0; i < 100; i++) {
+      tokens.add(ScanRange.MINIMUM_TOKEN + (i << 57));
+    }
+    ScanMetrics metrics = new ScanMetrics(new MetricRegistry(), "tokens");
+    FullTableScan<Long> scan = new TokenSetScan(tokens, 2);
+    scan.scanOptions().setMetrics(metrics);
+    List<Double> progress = new CopyOnWriteArrayList<>();
+
+    scan.tableScan(mock(Session.class), t -> {
+      if (t.equals(tokens.first()) || t == 0L) {
+        progress.add(metrics.getProgress());
+        assertTrue(metrics.isRunning());
+      }
+    });
+
+    assertEquals(2, progress.size());
+    for (double p : progress) {
+      assertTrue("unexpected progress " + p, p >= 0.0 && p < 1.0);
+    }
+    assertFalse(metrics.isRunning());
+    assertEquals(1.0, metrics.getProgress(), 1e-9);
+    assertEquals(-1L, metrics.getEtaSeconds());
+  }
+
+  /**
+   * Given: the consumer fails halfway through a parallel scan
+   * When: run tableScan() again with the same checkpoint
+   * Then: the scan resumes, every row is observed, the checkpoint is removed on completion
+   */
+  @Test
+  public void tableScan_checkpoint_resume() throws Exception {
+    NavigableSet<Long> tokens = new TreeSet<>();
+    for (long i = 0; i < 400; i++) {
+      tokens.add(ScanRange.MINIMUM_TOKEN + (i << 54));
+    }
+    Path file = temporaryFolder.getRoot().toPath().resolve("tokens.checkpoint");
+    ScanCheckpoint checkpoint = new ScanCheckpoint(file, Duration.ofMillis(10L));
+    FullTableScan<Long> scan = new TokenSetScan(tokens, 4);
+    Multiset<Long> observed = ConcurrentHashMultiset.create();
+
+    try {
+      scan.tableScan(mock(Session.class), t -> {
+        if (observed.size() >= 100) {
+          throw new IllegalStateException("simulated failure");
+        }
+        observed.add(t);
+      }, checkpoint);
+      fail("expected simulated failure");
+    } catch (IllegalStateException e) {
+      assertEquals("simulated failure", e.getMessage());
+    }
+    assertTrue(checkpoint.exists());
+    int beforeResume = observed.size();
+
+    scan.tableScan(mock(Session.class), observed::add, checkpoint);
+
+    assertEquals(tokens, observed.elementSet());
+    // only the rows in flight at the time of the failure are seen twice
+    assertTrue(observed.size() - beforeResume < tokens.size());
+    assertFalse(checkpoint.exists());
+  }
+
   private final FullTableScan<String> control = new FullTableScan<String>() {
     @Override
     public String table() {
@@ -147,6 +494,112 @@ public class FullTableScanTest {
     }
   };
 
+  /**
+   * Pages served for {@link #wide}: a partition that spans 3 pages, followed by 2 single row partitions.
+   */
+  private final List<ResultSet> wideResults = ImmutableList.of(
+    results(wideRow(1L, "a", 1), wideRow(1L, "a", 2), wideRow(1L, "a", 3)),
+    results(wideRow(1L, "a", 4), wideRow(1L, "a", 5), wideRow(1L, "a", 6)),
+    results(wideRow(1L, "a", 7)),
+    results(wideRow(5L, "b", 1), wideRow(9L, "c", 1)),
+    results());
+  private final FullTableScan<String> wide = new WideScan();
+
+  /**
+   * Test {@link FullTableScan} of a table with a clustering column, and a page size of 3.
+   */
+  static class WideScan implements FullTableScan<String> {
+    @Override
+    public String table() {
+      return "events";
+    }
+
+    @Override
+    public List<String> partitionKeys() {
+      return ImmutableList.of("id");
+    }
+
+    @Override
+    public List<String> clusteringColumns() {
+      return ImmutableList.of("seq");
+    }
+
+    @Override
+    public int limit() {
+      return 3;
+    }
+
+    @Override
+    public String mapRow(Row row) {
+      return row.getObject("id") + ":" + row.getObject("seq");
+    }
+  }
+
+  private static Row wideRow(long token, String id, int seq) {
+    Row row = mock(Row.class);
+    when(row.getLong("system.token(id)")).thenReturn(token);
+    when(row.getObject("id")).thenReturn(id);
+    when(row.getObject("seq")).thenReturn(seq);
+    return row;
+  }
+
+  private static ResultSet results(Row... rows) {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.iterator()).thenAnswer(invocation -> ImmutableList.copyOf(rows).iterator());
+    when(resultSet.getAvailableWithoutFetching()).thenReturn(rows.length);
+    return resultSet;
+  }
+
+  /**
+   * Test {@link FullTableScan} that serves a fixed set of tokens (one row per token) instead of
+   * querying Cassandra, pausing between rows so ranges are still running when others finish.
+   */
+  static final class TokenSetScan implements FullTableScan<Long> {
+    private final NavigableSet<Long> tokens;
+    private final TableScanOptions options;
+
+    TokenSetScan(NavigableSet<Long> tokens, int parallelism) {
+      this.tokens = tokens;
+      this.options = new TableScanOptions().setParallelism(parallelism);
+    }
+
+    @Override
+    public String table() {
+      return "tokens";
+    }
+
+    @Override
+    public List<String> partitionKeys() {
+      return ImmutableList.of("id");
+    }
+
+    @Override
+    public Long mapRow(Row row) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TableScanOptions scanOptions() {
+      return options;
+    }
+
+    @Override
+    public void tableScan(Session session, ScanRange range, Consumer<Long> consumer, PageController pages) {
+      for (Long token : tokens.tailSet(range.getPosition(), true)) {
+        if (!range.claim(token)) {
+          return;
+        }
+        consumer.accept(token);
+        try {
+          Thread.sleep(1L);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
   /**
    * Test Iterator that returns the same row N times until the count is achieved.
    */
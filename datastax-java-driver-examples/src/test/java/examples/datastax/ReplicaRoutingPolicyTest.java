@@ -0,0 +1,75 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ReplicaRoutingPolicy}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ReplicaRoutingPolicyTest {
+
+  private final LoadBalancingPolicy child = mock(LoadBalancingPolicy.class);
+  private final ReplicaRoutingPolicy policy = new ReplicaRoutingPolicy(child);
+  private final Host host1 = mock(Host.class);
+  private final Host host2 = mock(Host.class);
+  private final Host host3 = mock(Host.class);
+
+  @Before
+  public void setup() {
+    when(child.newQueryPlan(anyString(), any(Statement.class))).thenAnswer(invocation -> ImmutableList.of(host1, host2, host3).iterator());
+    when(child.distance(any(Host.class))).thenReturn(HostDistance.LOCAL);
+    when(host1.isUp()).thenReturn(true);
+    when(host2.isUp()).thenReturn(true);
+    when(host3.isUp()).thenReturn(true);
+  }
+
+  @Test
+  public void newQueryPlan_notRouted_childPlan() {
+    Statement statement = new SimpleStatement("SELECT * FROM videos");
+    assertEquals(ImmutableList.of(host1, host2, host3), Lists.newArrayList(policy.newQueryPlan("ks", statement)));
+  }
+
+  @Test
+  public void newQueryPlan_routed_replicaFirst() {
+    Statement statement = RoutedStatement.route(new SimpleStatement("SELECT * FROM videos"), host2);
+    assertEquals(ImmutableList.of(host2, host1, host3), Lists.newArrayList(policy.newQueryPlan("ks", statement)));
+  }
+
+  @Test
+  public void newQueryPlan_routed_replicaDown() {
+    when(host2.isUp()).thenReturn(false);
+    Statement statement = RoutedStatement.route(new SimpleStatement("SELECT * FROM videos"), host2);
+    assertEquals(ImmutableList.of(host1, host2, host3), Lists.newArrayList(policy.newQueryPlan("ks", statement)));
+  }
+
+  @Test
+  public void newQueryPlan_routed_replicaIgnored() {
+    when(child.distance(host3)).thenReturn(HostDistance.IGNORED);
+    Statement statement = RoutedStatement.route(new SimpleStatement("SELECT * FROM videos"), host3);
+    List<Host> plan = Lists.newArrayList(policy.newQueryPlan("ks", statement));
+    assertEquals(ImmutableList.of(host1, host2, host3), plan);
+  }
+
+  @Test
+  public void route_noReplica_unwrapped() {
+    Statement statement = new SimpleStatement("SELECT * FROM videos");
+    assertSame(statement, RoutedStatement.route(statement, null));
+  }
+}
@@ -0,0 +1,57 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ScanMetrics}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanMetricsTest {
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private final ScanMetrics metrics = new ScanMetrics(registry, "scan");
+
+  @Test
+  public void onPage_marksMeters() {
+    metrics.onPage(100, 2048L, TimeUnit.MILLISECONDS.toNanos(5));
+    metrics.onPage(50, 1024L, -1L);
+    assertEquals(150L, registry.meter("scan.rows").getCount());
+    assertEquals(2L, registry.meter("scan.pages").getCount());
+    assertEquals(3072L, registry.meter("scan.bytes").getCount());
+    // pages with unknown latency are not timed
+    assertEquals(1L, registry.timer("scan.pageLatency").getCount());
+  }
+
+  /**
+   * Given: a scan resumed at 20% that has reached 60%
+   * When: read the gauges
+   * Then: progress is 60%, the eta is extrapolated from the progress made since the scan started
+   */
+  @Test
+  public void started_progressAndEta() throws InterruptedException {
+    AtomicReference<Double> progress = new AtomicReference<>(0.2);
+    metrics.started(progress::get);
+    assertEquals(-1L, metrics.getEtaSeconds());
+
+    Thread.sleep(20L);
+    progress.set(0.6);
+    assertEquals(0.6, (Double) registry.getGauges().get("scan.progress").getValue(), 0.0);
+    Gauge<?> eta = registry.getGauges().get("scan.eta");
+    // 40% took at least 20ms, so 40% more takes at least that long; round down to whole seconds
+    assertTrue((Long) eta.getValue() >= 0L);
+
+    progress.set(1.0);
+    metrics.finished();
+    progress.set(0.0);
+    assertEquals(1.0, metrics.getProgress(), 0.0);
+    assertEquals(-1L, eta.getValue());
+  }
+}
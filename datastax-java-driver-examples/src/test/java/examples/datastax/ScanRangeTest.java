@@ -0,0 +1,111 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ScanRange}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanRangeTest {
+
+  @Test
+  public void splitRing_single() {
+    List<ScanRange> ranges = ScanRange.splitRing(1);
+    assertEquals(1, ranges.size());
+    assertEquals(ScanRange.MINIMUM_TOKEN, ranges.get(0).getStart());
+    assertEquals(ScanRange.MAXIMUM_TOKEN, ranges.get(0).getEnd());
+  }
+
+  /**
+   * Ranges returned by splitRing must be contiguous and cover the whole ring.
+   */
+  @Test
+  public void splitRing_contiguous() {
+    List<ScanRange> ranges = ScanRange.splitRing(7);
+    assertEquals(7, ranges.size());
+    assertEquals(ScanRange.MINIMUM_TOKEN, ranges.get(0).getStart());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).getEnd() + 1, ranges.get(i).getStart());
+    }
+    assertEquals(ScanRange.MAXIMUM_TOKEN, ranges.get(6).getEnd());
+  }
+
+  @Test
+  public void claim_advancesPosition() {
+    ScanRange range = new ScanRange(0L, 100L);
+    assertTrue(range.claim(10L));
+    assertEquals(11L, range.getPosition());
+    assertFalse(range.isComplete());
+  }
+
+  @Test
+  public void claim_beyondEnd() {
+    ScanRange range = new ScanRange(0L, 100L);
+    assertFalse(range.claim(101L));
+  }
+
+  /**
+   * Claiming the final token completes the range without overflowing the position.
+   */
+  @Test
+  public void claim_maximumToken() {
+    ScanRange range = ScanRange.fullRing();
+    assertTrue(range.claim(ScanRange.MAXIMUM_TOKEN));
+    assertTrue(range.isComplete());
+    // other rows sharing the final token are still claimable
+    assertTrue(range.claim(ScanRange.MAXIMUM_TOKEN));
+  }
+
+  @Test
+  public void split_fullRing() {
+    ScanRange range = ScanRange.fullRing();
+    ScanRange upper = range.split();
+    assertEquals(-1L, range.getEnd());
+    assertEquals(0L, upper.getStart());
+    assertEquals(ScanRange.MAXIMUM_TOKEN, upper.getEnd());
+  }
+
+  /**
+   * Given a range that was split while a page was in flight, rows beyond the new end are rejected.
+   */
+  @Test
+  public void split_rejectsInFlightRows() {
+    ScanRange range = ScanRange.fullRing();
+    assertTrue(range.claim(-5L));
+    ScanRange upper = range.split();
+    assertFalse(range.claim(upper.getStart()));
+    assertTrue(upper.claim(upper.getStart()));
+  }
+
+  @Test
+  public void split_tooSmall() {
+    ScanRange range = new ScanRange(0L, ScanRange.MINIMUM_SPLIT_SPAN - 1);
+    assertNull(range.split());
+  }
+
+  @Test
+  public void split_stopped() {
+    ScanRange range = ScanRange.fullRing();
+    range.stop();
+    assertNull(range.split());
+    assertFalse(range.claim(0L));
+  }
+
+  @Test
+  public void remainingFraction() {
+    ScanRange range = ScanRange.fullRing();
+    assertEquals(1.0, range.remainingFraction(), 0.0);
+    ScanRange upper = range.split();
+    assertEquals(0.5, range.remainingFraction(), 1e-9);
+    assertEquals(0.5, upper.remainingFraction(), 1e-9);
+    assertTrue(upper.claim(ScanRange.MAXIMUM_TOKEN));
+    assertEquals(0.0, upper.remainingFraction(), 0.0);
+  }
+}
@@ -0,0 +1,76 @@
+package examples.datastax;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ScanThrottle}.
+ *
+ * @author https://github.com/nblair
+ */
+public class ScanThrottleTest {
+
+  private static final double DELTA = 0.001;
+
+  /**
+   * Given: pages slower than the page latency threshold
+   * When: pages are recorded
+   * Then: the rate halves with each page, but not below the minimum
+   */
+  @Test
+  public void onPage_slow_backsOff() {
+    ScanThrottle throttle = new ScanThrottle(1000)
+      .setMinimumRowsPerSecond(200)
+      .setPageLatencyThreshold(Duration.ofMillis(100));
+    assertEquals(1000, throttle.getRowsPerSecond(), DELTA);
+    throttle.onPage(0, TimeUnit.SECONDS.toNanos(1));
+    assertEquals(500, throttle.getRowsPerSecond(), DELTA);
+    throttle.onPage(0, TimeUnit.SECONDS.toNanos(1));
+    assertEquals(250, throttle.getRowsPerSecond(), DELTA);
+    throttle.onPage(0, TimeUnit.SECONDS.toNanos(1));
+    assertEquals(200, throttle.getRowsPerSecond(), DELTA);
+  }
+
+  /**
+   * Given: foreground latency over the threshold, then back under it
+   * When: rows are acquired
+   * Then: the rate backs off, then recovers by a twentieth of the maximum at a time
+   */
+  @Test
+  public void acquire_foregroundLatency() {
+    AtomicLong foreground = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(500));
+    ScanThrottle throttle = new ScanThrottle(1000)
+      .setForegroundLatency(foreground::get, Duration.ofMillis(50));
+    throttle.acquire(0);
+    assertEquals(500, throttle.getRowsPerSecond(), DELTA);
+
+    foreground.set(TimeUnit.MILLISECONDS.toNanos(10));
+    throttle.acquire(0);
+    assertEquals(550, throttle.getRowsPerSecond(), DELTA);
+    for (int i = 0; i < 20; i++) {
+      throttle.acquire(0);
+    }
+    assertEquals(1000, throttle.getRowsPerSecond(), DELTA);
+  }
+
+  /**
+   * Given: no thresholds configured
+   * When: a slow page is recorded
+   * Then: the rate stays at the maximum
+   */
+  @Test
+  public void onPage_noThresholds_maximumRate() {
+    ScanThrottle throttle = new ScanThrottle(1000);
+    throttle.onPage(0, TimeUnit.MINUTES.toNanos(1));
+    assertEquals(1000, throttle.getRowsPerSecond(), DELTA);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setMinimumRowsPerSecond_aboveMaximum() {
+    new ScanThrottle(1000).setMinimumRowsPerSecond(2000);
+  }
+}
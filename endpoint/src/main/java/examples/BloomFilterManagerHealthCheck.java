@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import com.google.common.hash.BloomFilter;
 import com.google.common.io.CountingOutputStream;
+import examples.datastax.ScanMetrics;
 import examples.resources.VideoBloomFilterManager;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -17,10 +18,22 @@ public class BloomFilterManagerHealthCheck extends HealthCheck {
 
   private final VideoBloomFilterManager manager;
   private final ObjectMapper mapper;
+  private final ScanMetrics scanMetrics;
 
   public BloomFilterManagerHealthCheck(VideoBloomFilterManager manager, ObjectMapper mapper) {
+    this(manager, mapper, null);
+  }
+
+  /**
+   *
+   * @param manager the bloom filter manager
+   * @param mapper used to serialize the health check message
+   * @param scanMetrics metrics of the scans that build the filter, or null to omit scan progress
+   */
+  public BloomFilterManagerHealthCheck(VideoBloomFilterManager manager, ObjectMapper mapper, ScanMetrics scanMetrics) {
     this.manager = manager;
     this.mapper = mapper;
+    this.scanMetrics = scanMetrics;
   }
 
   /**
@@ -31,8 +44,12 @@ public class BloomFilterManagerHealthCheck extends HealthCheck {
    */
   @Override
   protected Result check() throws Exception {
-    BloomFilter<String> filter = manager.getVideoIdFilter();
+    BloomFilter<CharSequence> filter = manager.getVideoIdFilter();
     if(filter == null) {
+      if (scanMetrics != null && scanMetrics.isRunning()) {
+        return Result.unhealthy(String.format("videoId bloomFilter not available, initial scan %.1f%% complete, eta %d seconds",
+          scanMetrics.getProgress() * 100, scanMetrics.getEtaSeconds()));
+      }
       return Result.unhealthy("videoId bloomFilter not available");
     }
     HashMap<String, Object> message = Maps.newHashMap();
@@ -46,6 +63,14 @@ public class BloomFilterManagerHealthCheck extends HealthCheck {
     message.put("lastUpdated", manager.getLastUpdated());
     message.put("sizeInBytes", stream.getCount());
     message.put("updateThreshold", manager.getUpdateThreshold());
+    message.put("incrementalInserts", manager.getIncrementalInserts());
+    message.put("expectedFpp", filter.expectedFpp());
+    if (scanMetrics != null) {
+      message.put("scanRunning", scanMetrics.isRunning());
+      message.put("scanProgress", scanMetrics.getProgress());
+      message.put("scanEtaSeconds", scanMetrics.getEtaSeconds());
+      message.put("scanRowsPerSecond", scanMetrics.getRowsPerSecond());
+    }
     return Result.healthy(mapper.writeValueAsString(message));
   }
 }
@@ -1,20 +1,35 @@
 package examples;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Session;
-import com.datastax.driver.extras.codecs.jdk8.InstantCodec;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Strings;
 import examples.EndpointConfiguration.CassandraConfiguration;
+import examples.EndpointConfiguration.VideoDataConfiguration;
+import examples.datastax.ClusterOptions;
+import examples.datastax.DaoMetrics;
 import examples.datastax.DataStaxVideoDao;
+import examples.datastax.ScanMetrics;
+import examples.datastax.ScanThrottle;
+import examples.datastax.TableScanOptions;
+import examples.resources.BloomFilterUpdatingVideoDao;
+import examples.resources.BloomFilteredVideoDao;
 import examples.resources.IllegalArgumentExceptionMapper;
 import examples.resources.VideoBloomFilterManager;
 import examples.resources.VideoResource;
 import io.dropwizard.Application;
 import io.dropwizard.configuration.ResourceConfigurationSourceProvider;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import io.federecio.dropwizard.swagger.SwaggerBundle;
 import io.federecio.dropwizard.swagger.SwaggerBundleConfiguration;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import org.glassfish.jersey.server.filter.HttpMethodOverrideFilter;
 
 /**
  * Entry point for the endpoint application.
@@ -30,25 +45,50 @@ public class EndpointApplication extends Application<EndpointConfiguration> {
 
   @Override
   public void run(EndpointConfiguration configuration, Environment environment) throws Exception {
-    CassandraHealthCheck cassandraHealthCheck = new CassandraHealthCheck(configuration.cassandra, session(configuration.cassandra));
+    // one cluster (connection pools, control connection, metadata) for the whole application
+    final Session session = session(configuration.cassandra);
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() throws Exception {
+      }
+
+      @Override
+      public void stop() throws Exception {
+        // registered first, so stopped last, after everything that writes through the session
+        session.getCluster().close();
+      }
+    });
+    environment.metrics().register(MetricRegistry.name(Cluster.class, "speculativeExecutions"),
+      session.getCluster().getMetrics().getErrorMetrics().getSpeculativeExecutions());
+    CassandraHealthCheck cassandraHealthCheck = new CassandraHealthCheck(configuration.cassandra, session);
     environment.healthChecks().register("cassandra", cassandraHealthCheck);
 
     environment.jersey().register(new IllegalArgumentExceptionMapper(environment.metrics()));
+    // HttpURLConnection based clients can't send PATCH, see VideoApiClient#patch
+    environment.jersey().register(new HttpMethodOverrideFilter(HttpMethodOverrideFilter.Source.HEADER));
 
-    final VideoDao videoDao = videoDao(configuration);
-    // bloom filter manager
+    final ScanMetrics scanMetrics = new ScanMetrics(environment.metrics(), MetricRegistry.name(VideoDao.class, "scan"));
+    final DataStaxVideoDao dataStaxVideoDao = videoDao(session, configuration, environment.metrics(), scanMetrics);
+    final VideoDao videoDao = cache(coalesce(dataStaxVideoDao, configuration.videos, environment), configuration.videos, environment.metrics());
+    // bloom filter manager; scans go straight to Cassandra, so they can be checkpointed
     VideoBloomFilterManager videoBloomFilterManager = new VideoBloomFilterManager(
-      videoDao,
+      dataStaxVideoDao,
       configuration.videos.getUpdateFrequency(),
       configuration.videos.getRoughDatasetSize(),
       configuration.videos.getBloomFilterFalsePositivePercentage(),
-      environment.metrics());
+      environment.metrics(),
+      configuration.videos.getScanCheckpointDirectory() == null ? null : Paths.get(configuration.videos.getScanCheckpointDirectory()),
+      configuration.videos.getScanCheckpointInterval());
 
     environment.lifecycle().manage(videoBloomFilterManager);
-    environment.healthChecks().register("videoIdBloomFilter", new BloomFilterManagerHealthCheck(videoBloomFilterManager, environment.getObjectMapper()));
+    environment.healthChecks().register("videoIdBloomFilter", new BloomFilterManagerHealthCheck(videoBloomFilterManager, environment.getObjectMapper(), scanMetrics));
 
     // REST API
-    VideoResource resource = new VideoResource(videoDao, videoBloomFilterManager);
+    VideoResource resource = new VideoResource(
+      new InstrumentedVideoDao(bloomFilterGate(new BloomFilterUpdatingVideoDao(videoDao, videoBloomFilterManager),
+        videoBloomFilterManager, configuration.videos, environment.metrics()),
+        environment.metrics(), MetricRegistry.name(VideoDao.class)),
+      videoBloomFilterManager);
     environment.jersey().register(resource);
   }
 
@@ -59,6 +99,8 @@ public class EndpointApplication extends Application<EndpointConfiguration> {
 
     bootstrap.getObjectMapper().configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
+    bootstrap.addCommand(new SnapshotCommand());
+
     bootstrap.addBundle(new SwaggerBundle<EndpointConfiguration>() {
       @Override
       protected SwaggerBundleConfiguration getSwaggerBundleConfiguration(
@@ -68,15 +110,125 @@ public class EndpointApplication extends Application<EndpointConfiguration> {
     });
   }
 
+  /**
+   *
+   * @param conf cassandra configuration
+   * @return a session of a new {@link Cluster}; the caller must close the cluster
+   */
   protected Session session(CassandraConfiguration conf) {
-    Cluster cluster = Cluster.builder()
-      .addContactPoints(conf.getContactPoints())
+    Cluster cluster = new ClusterOptions()
+      .setContactPoints(conf.getContactPoints())
+      .setLocalDataCenter(conf.getLocalDataCenter())
+      .setTokenAware(conf.isTokenAware())
+      .setCoreConnectionsPerHost(conf.getCoreConnectionsPerHost())
+      .setMaxConnectionsPerHost(conf.getMaxConnectionsPerHost())
+      .setMaxRequestsPerConnection(conf.getMaxRequestsPerConnection())
+      .setConnectTimeoutMillis((int) conf.getConnectTimeout().toMilliseconds())
+      .setReadTimeoutMillis((int) conf.getReadTimeout().toMilliseconds())
+      .setCompression(conf.getCompression())
+      .setSpeculativeExecution(conf.getSpeculativeExecution())
+      .setSpeculativeExecutionDelayMillis(conf.getSpeculativeExecutionDelay().toMilliseconds())
+      .setSpeculativeExecutionPercentile(conf.getSpeculativeExecutionPercentile())
+      .setMaximumSpeculativeExecutions(conf.getMaximumSpeculativeExecutions())
       .build();
-    cluster.getConfiguration().getCodecRegistry().register(InstantCodec.instance);
-    Session session = cluster.connect(conf.getKeyspace());
-    return session;
+    try {
+      return cluster.connect(conf.getKeyspace());
+    } catch (RuntimeException e) {
+      cluster.close();
+      throw e;
+    }
+  }
+  protected DataStaxVideoDao videoDao(Session session, EndpointConfiguration configuration, MetricRegistry metrics, ScanMetrics scanMetrics) {
+    return new DataStaxVideoDao(session)
+      .setWriteMode(configuration.videos.getWriteMode())
+      .setMaximumWritesInFlight(configuration.videos.getMaximumWritesInFlight())
+      .setMaximumReadsInFlight(configuration.videos.getMaximumReadsInFlight())
+      .setDeleteMovedRows(configuration.videos.isDeleteMovedRows())
+      .setLatestOptions(configuration.videos.getLatestDays(), configuration.videos.getLatestDaysInFlight())
+      .setMetrics(new DaoMetrics(metrics, MetricRegistry.name(DataStaxVideoDao.class)))
+      .setReadOptions(configuration.cassandra.getRetrieveConsistencyLevel(),
+        configuration.cassandra.getRetrieveTimeout() == null ? null
+          : Duration.ofMillis(configuration.cassandra.getRetrieveTimeout().toMilliseconds()))
+      .setWriteOptions(configuration.cassandra.getSaveConsistencyLevel(),
+        configuration.cassandra.getSaveTimeout() == null ? null
+          : Duration.ofMillis(configuration.cassandra.getSaveTimeout().toMilliseconds()))
+      .setScanOptions(new TableScanOptions()
+        .setParallelism(configuration.videos.getScanParallelism())
+        .setDriverPaging(configuration.videos.isScanDriverPaging())
+        .setPrefetchPages(configuration.videos.getScanPrefetchPages())
+        .setPreparedStatements(configuration.videos.isScanPreparedStatements())
+        .setReplicaAware(configuration.videos.isScanReplicaAware())
+        .setMaximumRangesPerHost(configuration.videos.getScanMaximumRangesPerHost())
+        .setAdaptivePageSize(configuration.videos.getScanMinimumPageSize(),
+          configuration.videos.getScanMaximumPageSize(),
+          configuration.videos.getScanTargetPageLatency() == null ? null
+            : Duration.ofMillis(configuration.videos.getScanTargetPageLatency().toMilliseconds()))
+        .setThrottle(scanThrottle(configuration.videos, metrics))
+        .setMetrics(scanMetrics));
+  }
+
+  /**
+   *
+   * @param videoDao the dao to write batches to
+   * @param conf video data configuration
+   * @param environment manages the scheduler that writes lingering batches
+   * @return the dao behind a {@link CoalescingVideoDao}, or the dao itself if saves are not coalesced
+   */
+  protected VideoDao coalesce(VideoDao videoDao, VideoDataConfiguration conf, Environment environment) {
+    if (!conf.isSaveCoalescing()) {
+      return videoDao;
+    }
+    // lingering batches are still written when the scheduler is shut down on stop
+    ScheduledExecutorService scheduler = environment.lifecycle().scheduledExecutorService("video-save-coalescing-%d").build();
+    return new CoalescingVideoDao(videoDao, conf.getSaveCoalescingMaximumBatchSize(),
+      Duration.ofMillis(conf.getSaveCoalescingMaximumLinger().toMilliseconds()), scheduler);
+  }
+
+  /**
+   *
+   * @param videoDao the dao to read through to
+   * @param conf video data configuration
+   * @param metrics the registry for the cache metrics
+   * @return the dao behind a {@link CachingVideoDao}, or the dao itself if there is no cache policy
+   */
+  protected VideoDao cache(VideoDao videoDao, VideoDataConfiguration conf, MetricRegistry metrics) {
+    if (Strings.isNullOrEmpty(conf.getCachePolicy())) {
+      return videoDao;
+    }
+    return new CachingVideoDao(videoDao, conf.getCachePolicy(), metrics, MetricRegistry.name(VideoDao.class, "cache"));
   }
-  protected VideoDao videoDao(EndpointConfiguration configuration) {
-    return new DataStaxVideoDao(session(configuration.cassandra));
+
+  /**
+   *
+   * @param videoDao the dao to pass lookups to
+   * @param manager provides the bloom filter
+   * @param conf video data configuration
+   * @param metrics the registry for the skip and false positive metrics
+   * @return the dao behind a {@link BloomFilteredVideoDao}, or the dao itself if the gate is disabled
+   */
+  protected VideoDao bloomFilterGate(VideoDao videoDao, VideoBloomFilterManager manager, VideoDataConfiguration conf, MetricRegistry metrics) {
+    if (!conf.isBloomFilterGate()) {
+      return videoDao;
+    }
+    return new BloomFilteredVideoDao(videoDao, manager, metrics, MetricRegistry.name(VideoDao.class, "bloomFilter"));
+  }
+
+  /**
+   * Background scans back off when they slow down {@link VideoResource#get(String)}.
+   *
+   * @param conf video data configuration
+   * @param metrics the registry holding the {@link com.codahale.metrics.annotation.Timed} resource metrics
+   * @return a throttle for table scans, or null if scans are unthrottled
+   */
+  protected ScanThrottle scanThrottle(VideoDataConfiguration conf, MetricRegistry metrics) {
+    if (conf.getScanMaximumRowsPerSecond() <= 0) {
+      return null;
+    }
+    Timer foreground = metrics.timer(MetricRegistry.name(VideoResource.class, "get"));
+    return new ScanThrottle(conf.getScanMaximumRowsPerSecond())
+      .setMinimumRowsPerSecond(conf.getScanMinimumRowsPerSecond())
+      .setPageLatencyThreshold(Duration.ofMillis(conf.getScanPageLatencyThreshold().toMilliseconds()))
+      .setForegroundLatency(() -> (long) foreground.getSnapshot().get99thPercentile(),
+        Duration.ofMillis(conf.getScanForegroundLatencyThreshold().toMilliseconds()));
   }
 }
@@ -1,6 +1,10 @@
 package examples;
 
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ProtocolOptions.Compression;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import examples.datastax.ClusterOptions.SpeculativeExecution;
+import examples.datastax.DataStaxVideoDao.WriteMode;
 import io.dropwizard.Configuration;
 import io.dropwizard.util.Duration;
 import io.federecio.dropwizard.swagger.SwaggerBundleConfiguration;
@@ -33,6 +37,38 @@ public class EndpointConfiguration extends Configuration {
     private String validationQuery = "SELECT now() FROM system.local;";
     @JsonProperty
     private Duration validationTimeout = Duration.seconds(2L);
+    @JsonProperty
+    private String localDataCenter;
+    @JsonProperty
+    private boolean tokenAware = true;
+    @JsonProperty
+    private int coreConnectionsPerHost = 1;
+    @JsonProperty
+    private int maxConnectionsPerHost = 1;
+    @JsonProperty
+    private int maxRequestsPerConnection = 1024;
+    @JsonProperty
+    private Duration connectTimeout = Duration.seconds(5L);
+    @JsonProperty
+    private Duration readTimeout = Duration.seconds(12L);
+    @JsonProperty
+    private Compression compression = Compression.LZ4;
+    @JsonProperty
+    private SpeculativeExecution speculativeExecution = SpeculativeExecution.CONSTANT;
+    @JsonProperty
+    private Duration speculativeExecutionDelay = Duration.milliseconds(100L);
+    @JsonProperty
+    private double speculativeExecutionPercentile = 99.0;
+    @JsonProperty
+    private int maximumSpeculativeExecutions = 1;
+    @JsonProperty
+    private ConsistencyLevel retrieveConsistencyLevel = ConsistencyLevel.LOCAL_ONE;
+    @JsonProperty
+    private Duration retrieveTimeout = Duration.seconds(2L);
+    @JsonProperty
+    private ConsistencyLevel saveConsistencyLevel = ConsistencyLevel.LOCAL_ONE;
+    @JsonProperty
+    private Duration saveTimeout;
 
     public String[] getContactPoints() {
       return contactPoints;
@@ -65,6 +101,170 @@ public class EndpointConfiguration extends Configuration {
     public void setValidationTimeout(Duration validationTimeout) {
       this.validationTimeout = validationTimeout;
     }
+
+    /**
+     * @return the data center whose hosts are queried, or null to use the data center of the contact points
+     */
+    public String getLocalDataCenter() {
+      return localDataCenter;
+    }
+
+    public void setLocalDataCenter(String localDataCenter) {
+      this.localDataCenter = localDataCenter;
+    }
+
+    /**
+     * @return true to send statements to a replica of their partition
+     */
+    public boolean isTokenAware() {
+      return tokenAware;
+    }
+
+    public void setTokenAware(boolean tokenAware) {
+      this.tokenAware = tokenAware;
+    }
+
+    /**
+     * @return the number of connections kept open to each local host
+     */
+    public int getCoreConnectionsPerHost() {
+      return coreConnectionsPerHost;
+    }
+
+    public void setCoreConnectionsPerHost(int coreConnectionsPerHost) {
+      this.coreConnectionsPerHost = coreConnectionsPerHost;
+    }
+
+    /**
+     * @return the number of connections each local host's pool may grow to under load
+     */
+    public int getMaxConnectionsPerHost() {
+      return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * @return the number of concurrent requests on each connection to a local host
+     */
+    public int getMaxRequestsPerConnection() {
+      return maxRequestsPerConnection;
+    }
+
+    public void setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+      this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    public Duration getConnectTimeout() {
+      return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+      return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+      this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the compression of protocol frames, NONE, LZ4 or SNAPPY (which needs snappy-java on the classpath)
+     */
+    public Compression getCompression() {
+      return compression;
+    }
+
+    public void setCompression(Compression compression) {
+      this.compression = compression;
+    }
+
+    /**
+     * PERCENTILE also records the latencies of the bloom filter and snapshot scans, which share the
+     * session, so CONSTANT is the default.
+     *
+     * @return when to also send a slow lookup to another replica: NONE, CONSTANT or PERCENTILE
+     */
+    public SpeculativeExecution getSpeculativeExecution() {
+      return speculativeExecution;
+    }
+
+    public void setSpeculativeExecution(SpeculativeExecution speculativeExecution) {
+      this.speculativeExecution = speculativeExecution;
+    }
+
+    /**
+     * @return the delay before each speculative execution, with CONSTANT
+     */
+    public Duration getSpeculativeExecutionDelay() {
+      return speculativeExecutionDelay;
+    }
+
+    public void setSpeculativeExecutionDelay(Duration speculativeExecutionDelay) {
+      this.speculativeExecutionDelay = speculativeExecutionDelay;
+    }
+
+    /**
+     * @return the latency percentile after which a lookup is executed speculatively, with PERCENTILE
+     */
+    public double getSpeculativeExecutionPercentile() {
+      return speculativeExecutionPercentile;
+    }
+
+    public void setSpeculativeExecutionPercentile(double speculativeExecutionPercentile) {
+      this.speculativeExecutionPercentile = speculativeExecutionPercentile;
+    }
+
+    public int getMaximumSpeculativeExecutions() {
+      return maximumSpeculativeExecutions;
+    }
+
+    public void setMaximumSpeculativeExecutions(int maximumSpeculativeExecutions) {
+      this.maximumSpeculativeExecutions = maximumSpeculativeExecutions;
+    }
+
+    public ConsistencyLevel getRetrieveConsistencyLevel() {
+      return retrieveConsistencyLevel;
+    }
+
+    public void setRetrieveConsistencyLevel(ConsistencyLevel retrieveConsistencyLevel) {
+      this.retrieveConsistencyLevel = retrieveConsistencyLevel;
+    }
+
+    /**
+     * @return how long to wait for each replica to answer a lookup, or null for the read timeout
+     */
+    public Duration getRetrieveTimeout() {
+      return retrieveTimeout;
+    }
+
+    public void setRetrieveTimeout(Duration retrieveTimeout) {
+      this.retrieveTimeout = retrieveTimeout;
+    }
+
+    public ConsistencyLevel getSaveConsistencyLevel() {
+      return saveConsistencyLevel;
+    }
+
+    public void setSaveConsistencyLevel(ConsistencyLevel saveConsistencyLevel) {
+      this.saveConsistencyLevel = saveConsistencyLevel;
+    }
+
+    /**
+     * @return how long to wait for each coordinator to answer a write, or null for the read timeout
+     */
+    public Duration getSaveTimeout() {
+      return saveTimeout;
+    }
+
+    public void setSaveTimeout(Duration saveTimeout) {
+      this.saveTimeout = saveTimeout;
+    }
   }
   /**
    * Container for configuration related to video data.
@@ -77,6 +277,58 @@ public class EndpointConfiguration extends Configuration {
     private int roughDatasetSize = 500_000;
     @JsonProperty
     private double bloomFilterFalsePositivePercentage = 0.03;
+    @JsonProperty
+    private int scanParallelism = 4;
+    @JsonProperty
+    private boolean scanDriverPaging = true;
+    @JsonProperty
+    private int scanPrefetchPages = 1;
+    @JsonProperty
+    private boolean scanPreparedStatements = true;
+    @JsonProperty
+    private String scanCheckpointDirectory;
+    @JsonProperty
+    private Duration scanCheckpointInterval = Duration.minutes(1L);
+    @JsonProperty
+    private int scanMinimumPageSize = 500;
+    @JsonProperty
+    private int scanMaximumPageSize = 20_000;
+    @JsonProperty
+    private Duration scanTargetPageLatency;
+    @JsonProperty
+    private boolean scanReplicaAware = true;
+    @JsonProperty
+    private int scanMaximumRangesPerHost = 2;
+    @JsonProperty
+    private double scanMaximumRowsPerSecond;
+    @JsonProperty
+    private double scanMinimumRowsPerSecond = 500;
+    @JsonProperty
+    private Duration scanPageLatencyThreshold = Duration.seconds(1L);
+    @JsonProperty
+    private Duration scanForegroundLatencyThreshold = Duration.milliseconds(50L);
+    @JsonProperty
+    private WriteMode writeMode = WriteMode.PARTITIONED;
+    @JsonProperty
+    private int maximumWritesInFlight = 32;
+    @JsonProperty
+    private int maximumReadsInFlight = 32;
+    @JsonProperty
+    private boolean deleteMovedRows = false;
+    @JsonProperty
+    private String cachePolicy = "maximumSize=100000,expireAfterWrite=10m";
+    @JsonProperty
+    private boolean bloomFilterGate = false;
+    @JsonProperty
+    private int latestDays = 7;
+    @JsonProperty
+    private int latestDaysInFlight = 2;
+    @JsonProperty
+    private boolean saveCoalescing = false;
+    @JsonProperty
+    private int saveCoalescingMaximumBatchSize = 64;
+    @JsonProperty
+    private Duration saveCoalescingMaximumLinger = Duration.milliseconds(2L);
 
     public Duration getUpdateFrequency() {
       return updateFrequency;
@@ -101,5 +353,263 @@ public class EndpointConfiguration extends Configuration {
     public void setBloomFilterFalsePositivePercentage(double bloomFilterFalsePositivePercentage) {
       this.bloomFilterFalsePositivePercentage = bloomFilterFalsePositivePercentage;
     }
+
+    public int getScanParallelism() {
+      return scanParallelism;
+    }
+
+    public void setScanParallelism(int scanParallelism) {
+      this.scanParallelism = scanParallelism;
+    }
+
+    public boolean isScanDriverPaging() {
+      return scanDriverPaging;
+    }
+
+    public void setScanDriverPaging(boolean scanDriverPaging) {
+      this.scanDriverPaging = scanDriverPaging;
+    }
+
+    public int getScanPrefetchPages() {
+      return scanPrefetchPages;
+    }
+
+    public void setScanPrefetchPages(int scanPrefetchPages) {
+      this.scanPrefetchPages = scanPrefetchPages;
+    }
+
+    public boolean isScanPreparedStatements() {
+      return scanPreparedStatements;
+    }
+
+    public void setScanPreparedStatements(boolean scanPreparedStatements) {
+      this.scanPreparedStatements = scanPreparedStatements;
+    }
+
+    /**
+     * @return directory for bloom filter scan checkpoints, or null if checkpoints are disabled
+     */
+    public String getScanCheckpointDirectory() {
+      return scanCheckpointDirectory;
+    }
+
+    public void setScanCheckpointDirectory(String scanCheckpointDirectory) {
+      this.scanCheckpointDirectory = scanCheckpointDirectory;
+    }
+
+    public Duration getScanCheckpointInterval() {
+      return scanCheckpointInterval;
+    }
+
+    public void setScanCheckpointInterval(Duration scanCheckpointInterval) {
+      this.scanCheckpointInterval = scanCheckpointInterval;
+    }
+
+    public int getScanMinimumPageSize() {
+      return scanMinimumPageSize;
+    }
+
+    public void setScanMinimumPageSize(int scanMinimumPageSize) {
+      this.scanMinimumPageSize = scanMinimumPageSize;
+    }
+
+    public int getScanMaximumPageSize() {
+      return scanMaximumPageSize;
+    }
+
+    public void setScanMaximumPageSize(int scanMaximumPageSize) {
+      this.scanMaximumPageSize = scanMaximumPageSize;
+    }
+
+    /**
+     * @return desired time to fetch each page of a scan, or null to use a fixed page size
+     */
+    public Duration getScanTargetPageLatency() {
+      return scanTargetPageLatency;
+    }
+
+    public void setScanTargetPageLatency(Duration scanTargetPageLatency) {
+      this.scanTargetPageLatency = scanTargetPageLatency;
+    }
+
+    public boolean isScanReplicaAware() {
+      return scanReplicaAware;
+    }
+
+    public void setScanReplicaAware(boolean scanReplicaAware) {
+      this.scanReplicaAware = scanReplicaAware;
+    }
+
+    public int getScanMaximumRangesPerHost() {
+      return scanMaximumRangesPerHost;
+    }
+
+    public void setScanMaximumRangesPerHost(int scanMaximumRangesPerHost) {
+      this.scanMaximumRangesPerHost = scanMaximumRangesPerHost;
+    }
+
+    /**
+     * @return the rate at which scans read rows when the cluster isn't under pressure, or 0 if scans are unthrottled
+     */
+    public double getScanMaximumRowsPerSecond() {
+      return scanMaximumRowsPerSecond;
+    }
+
+    public void setScanMaximumRowsPerSecond(double scanMaximumRowsPerSecond) {
+      this.scanMaximumRowsPerSecond = scanMaximumRowsPerSecond;
+    }
+
+    public double getScanMinimumRowsPerSecond() {
+      return scanMinimumRowsPerSecond;
+    }
+
+    public void setScanMinimumRowsPerSecond(double scanMinimumRowsPerSecond) {
+      this.scanMinimumRowsPerSecond = scanMinimumRowsPerSecond;
+    }
+
+    /**
+     * @return scans back off when a page takes longer than this
+     */
+    public Duration getScanPageLatencyThreshold() {
+      return scanPageLatencyThreshold;
+    }
+
+    public void setScanPageLatencyThreshold(Duration scanPageLatencyThreshold) {
+      this.scanPageLatencyThreshold = scanPageLatencyThreshold;
+    }
+
+    /**
+     * @return scans back off when the 99th percentile latency of video requests is greater than this
+     */
+    public Duration getScanForegroundLatencyThreshold() {
+      return scanForegroundLatencyThreshold;
+    }
+
+    public void setScanForegroundLatencyThreshold(Duration scanForegroundLatencyThreshold) {
+      this.scanForegroundLatencyThreshold = scanForegroundLatencyThreshold;
+    }
+
+    public WriteMode getWriteMode() {
+      return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+      this.writeMode = writeMode;
+    }
+
+    /**
+     * @return the maximum number of concurrent writes for one save, when the write mode is PARTITIONED
+     */
+    public int getMaximumWritesInFlight() {
+      return maximumWritesInFlight;
+    }
+
+    public void setMaximumWritesInFlight(int maximumWritesInFlight) {
+      this.maximumWritesInFlight = maximumWritesInFlight;
+    }
+
+    /**
+     * @return the maximum number of concurrent lookups when retrieving many videos
+     */
+    public int getMaximumReadsInFlight() {
+      return maximumReadsInFlight;
+    }
+
+    public void setMaximumReadsInFlight(int maximumReadsInFlight) {
+      this.maximumReadsInFlight = maximumReadsInFlight;
+    }
+
+    /**
+     * Costs a read before each save of an existing video that sets its user or added date.
+     *
+     * @return true to delete a video's previous by user and latest rows when a save moves them
+     */
+    public boolean isDeleteMovedRows() {
+      return deleteMovedRows;
+    }
+
+    public void setDeleteMovedRows(boolean deleteMovedRows) {
+      this.deleteMovedRows = deleteMovedRows;
+    }
+
+    /**
+     * @return the Caffeine spec for the video cache, e.g. "maximumSize=100000,expireAfterWrite=10m", or null to disable the cache
+     */
+    public String getCachePolicy() {
+      return cachePolicy;
+    }
+
+    public void setCachePolicy(String cachePolicy) {
+      this.cachePolicy = cachePolicy;
+    }
+
+    /**
+     * Only safe with a single writer: videos saved through another instance of the endpoint, or
+     * loaded directly into Cassandra, are reported not found until the next filter is built.
+     *
+     * @return true to skip lookups of video ids that the bloom filter says don't exist
+     */
+    public boolean isBloomFilterGate() {
+      return bloomFilterGate;
+    }
+
+    public void setBloomFilterGate(boolean bloomFilterGate) {
+      this.bloomFilterGate = bloomFilterGate;
+    }
+
+    /**
+     * @return how many days back the latest videos are listed, including today
+     */
+    public int getLatestDays() {
+      return latestDays;
+    }
+
+    public void setLatestDays(int latestDays) {
+      this.latestDays = latestDays;
+    }
+
+    /**
+     * @return the most days of latest videos read concurrently, once the newest days leave a page short
+     */
+    public int getLatestDaysInFlight() {
+      return latestDaysInFlight;
+    }
+
+    public void setLatestDaysInFlight(int latestDaysInFlight) {
+      this.latestDaysInFlight = latestDaysInFlight;
+    }
+
+    /**
+     * @return true to coalesce concurrent single video saves into batches
+     */
+    public boolean isSaveCoalescing() {
+      return saveCoalescing;
+    }
+
+    public void setSaveCoalescing(boolean saveCoalescing) {
+      this.saveCoalescing = saveCoalescing;
+    }
+
+    /**
+     * @return the number of coalesced saves that are written without waiting for more
+     */
+    public int getSaveCoalescingMaximumBatchSize() {
+      return saveCoalescingMaximumBatchSize;
+    }
+
+    public void setSaveCoalescingMaximumBatchSize(int saveCoalescingMaximumBatchSize) {
+      this.saveCoalescingMaximumBatchSize = saveCoalescingMaximumBatchSize;
+    }
+
+    /**
+     * @return how long a coalesced save waits for others to join its batch
+     */
+    public Duration getSaveCoalescingMaximumLinger() {
+      return saveCoalescingMaximumLinger;
+    }
+
+    public void setSaveCoalescingMaximumLinger(Duration saveCoalescingMaximumLinger) {
+      this.saveCoalescingMaximumLinger = saveCoalescingMaximumLinger;
+    }
   }
 }
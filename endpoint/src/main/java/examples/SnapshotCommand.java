@@ -0,0 +1,68 @@
+package examples;
+
+import com.datastax.driver.core.Session;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command that scans every video once and writes them to a {@link VideoSnapshotWriter} file, so
+ * offline jobs can read a local {@link VideoSnapshotReader} instead of each scanning Cassandra.
+ *
+ * The snapshot is written next to the output file and moved into place when complete, so readers
+ * never see a partial file.
+ */
+class SnapshotCommand extends ConfiguredCommand<EndpointConfiguration> {
+
+  private final Logger logger = LoggerFactory.getLogger(SnapshotCommand.class);
+
+  SnapshotCommand() {
+    super("snapshot", "Writes every video to a binary snapshot file");
+  }
+
+  @Override
+  public void configure(Subparser subparser) {
+    super.configure(subparser);
+    subparser.addArgument("-o", "--output")
+      .dest("output")
+      .required(true)
+      .help("the snapshot file to write");
+    subparser.addArgument("--buffer-size")
+      .dest("bufferSize")
+      .type(Integer.class)
+      .setDefault(1 << 20)
+      .help("size of the write buffer in bytes");
+  }
+
+  @Override
+  protected void run(Bootstrap<EndpointConfiguration> bootstrap, Namespace namespace, EndpointConfiguration configuration) throws Exception {
+    EndpointApplication application = (EndpointApplication) bootstrap.getApplication();
+    Path output = Paths.get(namespace.getString("output")).toAbsolutePath();
+    Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+
+    Session session = application.session(configuration.cassandra);
+    try {
+      VideoDao videoDao = application.videoDao(session, configuration, bootstrap.getMetricRegistry(), null);
+      long start = System.currentTimeMillis();
+      long count;
+      try (VideoSnapshotWriter writer = new VideoSnapshotWriter(temporary, namespace.getInt("bufferSize"))) {
+        videoDao.onEvery(writer);
+        count = writer.getCount();
+      } catch (Exception e) {
+        Files.deleteIfExists(temporary);
+        throw e;
+      }
+      Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("wrote {} videos ({} bytes) to {} in {} ms", count, Files.size(output), output, System.currentTimeMillis() - start);
+    } finally {
+      session.getCluster().close();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package examples.resources;
+
+import examples.ForwardingVideoDao;
+import examples.SaveResult;
+import examples.Video;
+import examples.VideoDao;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link VideoDao} decorator that adds the id of each video saved through it to the
+ * {@link VideoBloomFilterManager}'s filter, so the filter doesn't report new videos absent until the
+ * next full build.
+ *
+ * Ids are added once the save completes, whether or not it succeeded, since a failed write may
+ * still have been applied; at worst the id is a false positive.
+ */
+public class BloomFilterUpdatingVideoDao extends ForwardingVideoDao {
+
+  private final VideoBloomFilterManager manager;
+
+  /**
+   *
+   * @param delegate the dao to save through
+   * @param manager provides the filter to add ids to
+   */
+  public BloomFilterUpdatingVideoDao(VideoDao delegate, VideoBloomFilterManager manager) {
+    super(delegate);
+    this.manager = manager;
+  }
+
+  @Override
+  public Video save(Video video) {
+    try {
+      return delegate().save(video);
+    } finally {
+      saved(video);
+    }
+  }
+
+  @Override
+  public Collection<Video> save(Collection<Video> videos) {
+    try {
+      return delegate().save(videos);
+    } finally {
+      videos.forEach(this::saved);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Video> saveAsync(Video video) {
+    return delegate().saveAsync(video)
+      .whenComplete((result, error) -> saved(video));
+  }
+
+  @Override
+  public CompletableFuture<Collection<Video>> saveAsync(Collection<Video> videos) {
+    return delegate().saveAsync(videos)
+      .whenComplete((result, error) -> videos.forEach(this::saved));
+  }
+
+  @Override
+  public CompletableFuture<SaveResult> saveEach(Collection<Video> videos) {
+    return delegate().saveEach(videos)
+      .whenComplete((result, error) -> videos.forEach(this::saved));
+  }
+
+  /**
+   *
+   * @param video a video that may have been saved
+   */
+  private void saved(Video video) {
+    // the delegate assigns ids to new videos, unless the save failed before it got that far
+    if (video.getVideoId() != null) {
+      manager.put(video.getVideoId());
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package examples.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.hash.BloomFilter;
+import examples.ForwardingVideoDao;
+import examples.Video;
+import examples.VideoDao;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * {@link VideoDao} decorator that answers "not found" without a query when the
+ * {@link VideoBloomFilterManager#getVideoIdFilter()} says a video id is absent. Until the first
+ * filter is built, every lookup is passed through.
+ *
+ * Ids of videos saved through a {@link BloomFilterUpdatingVideoDao} are added to the filter as they
+ * are saved. Videos saved through another instance of the endpoint (or directly in Cassandra, such as
+ * by a bulk import) are reported absent until the next filter is built, so this is only safe in
+ * front of the single instance that writes videos.
+ *
+ * Meters of skipped lookups, lookups passed to the delegate, and false positives (passed lookups that
+ * found nothing), and gauges of the skip and false positive rates, are registered under the provided name.
+ */
+public class BloomFilteredVideoDao extends ForwardingVideoDao {
+
+  private static final ThreadLocal<UuidCharSequence> VIDEO_ID = ThreadLocal.withInitial(UuidCharSequence::new);
+  private final VideoBloomFilterManager manager;
+  private final Meter skipped;
+  private final Meter passed;
+  private final Meter falsePositives;
+
+  /**
+   *
+   * @param delegate the dao to pass lookups to
+   * @param manager provides the current filter
+   * @param metrics the registry for the meters and gauges
+   * @param name prefix for the metric names
+   */
+  public BloomFilteredVideoDao(VideoDao delegate, VideoBloomFilterManager manager, MetricRegistry metrics, String name) {
+    super(delegate);
+    this.manager = manager;
+    this.skipped = metrics.meter(MetricRegistry.name(name, "skipped"));
+    this.passed = metrics.meter(MetricRegistry.name(name, "passed"));
+    this.falsePositives = metrics.meter(MetricRegistry.name(name, "falsePositives"));
+    metrics.register(MetricRegistry.name(name, "skipRate"), new RatioGauge() {
+      @Override
+      protected Ratio getRatio() {
+        return Ratio.of(skipped.getCount(), skipped.getCount() + passed.getCount());
+      }
+    });
+    metrics.register(MetricRegistry.name(name, "falsePositiveRate"), new RatioGauge() {
+      @Override
+      protected Ratio getRatio() {
+        return Ratio.of(falsePositives.getCount(), passed.getCount());
+      }
+    });
+  }
+
+  @Override
+  public Video retrieve(UUID videoId) {
+    if (absent(videoId)) {
+      return null;
+    }
+    return passed(delegate().retrieve(videoId));
+  }
+
+  @Override
+  public CompletableFuture<Video> retrieveAsync(UUID videoId) {
+    if (absent(videoId)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return delegate().retrieveAsync(videoId).thenApply(this::passed);
+  }
+
+  @Override
+  public Map<UUID, Video> retrieveAll(Collection<UUID> videoIds) {
+    List<UUID> present = mightExist(videoIds);
+    Map<UUID, Video> videos = delegate().retrieveAll(present);
+    falsePositives.mark(present.size() - videos.size());
+    return videos;
+  }
+
+  @Override
+  public void retrieveAll(Collection<UUID> videoIds, Consumer<Video> consumer) {
+    List<UUID> present = mightExist(videoIds);
+    int[] found = new int[1];
+    try {
+      delegate().retrieveAll(present, video -> {
+        found[0]++;
+        consumer.accept(video);
+      });
+    } finally {
+      falsePositives.mark(present.size() - found[0]);
+    }
+  }
+
+  /**
+   * Decide whether a lookup can be skipped, and count it.
+   *
+   * @param videoId the id to look up
+   * @return true if the video definitely doesn't exist
+   */
+  private boolean absent(UUID videoId) {
+    BloomFilter<CharSequence> filter = manager.getVideoIdFilter();
+    if (filter == null || filter.mightContain(VIDEO_ID.get().set(videoId.getMostSignificantBits(), videoId.getLeastSignificantBits()))) {
+      passed.mark();
+      return false;
+    }
+    skipped.mark();
+    return true;
+  }
+
+  /**
+   *
+   * @param videoIds the ids to look up
+   * @return the distinct ids that can't be skipped
+   */
+  private List<UUID> mightExist(Collection<UUID> videoIds) {
+    List<UUID> present = new ArrayList<>();
+    for (UUID videoId : new LinkedHashSet<>(videoIds)) {
+      if (!absent(videoId)) {
+        present.add(videoId);
+      }
+    }
+    return present;
+  }
+
+  /**
+   *
+   * @param video the result of a lookup that wasn't skipped
+   * @return the video
+   */
+  private Video passed(Video video) {
+    if (video == null) {
+      falsePositives.mark();
+    }
+    return video;
+  }
+}
@@ -0,0 +1,62 @@
+package examples.resources;
+
+import java.util.UUID;
+
+/**
+ * Reusable {@link CharSequence} view of a {@link UUID}, with the same characters as
+ * {@link UUID#toString()}, computed from the two component longs without allocating.
+ *
+ * Not thread safe; callers must not {@link #set(long, long)} while another thread reads.
+ */
+class UuidCharSequence implements CharSequence {
+
+  private static final int LENGTH = 36;
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+  private long mostSignificantBits;
+  private long leastSignificantBits;
+
+  /**
+   *
+   * @param mostSignificantBits see {@link UUID#getMostSignificantBits()}
+   * @param leastSignificantBits see {@link UUID#getLeastSignificantBits()}
+   * @return this instance
+   */
+  UuidCharSequence set(long mostSignificantBits, long leastSignificantBits) {
+    this.mostSignificantBits = mostSignificantBits;
+    this.leastSignificantBits = leastSignificantBits;
+    return this;
+  }
+
+  @Override
+  public int length() {
+    return LENGTH;
+  }
+
+  /**
+   * Layout is 8-4-4-4-12 hex digits; the first 3 groups come from the most significant bits.
+   */
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= LENGTH) {
+      throw new IndexOutOfBoundsException("index " + index + " is outside of [0, " + LENGTH + ")");
+    }
+    if (index == 8 || index == 13 || index == 18 || index == 23) {
+      return '-';
+    }
+    // number of hex digits (including this one) from the start of the uuid, ignoring dashes
+    int digit = index - (index > 23 ? 4 : index > 18 ? 3 : index > 13 ? 2 : index > 8 ? 1 : 0);
+    long bits = digit < 16 ? mostSignificantBits : leastSignificantBits;
+    int shift = 60 - 4 * (digit % 16);
+    return DIGITS[(int) (bits >>> shift) & 0xf];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return new UUID(mostSignificantBits, leastSignificantBits).toString();
+  }
+}
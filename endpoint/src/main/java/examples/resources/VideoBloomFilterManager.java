@@ -1,5 +1,6 @@
 package examples.resources;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.Timed;
@@ -9,32 +10,62 @@ import com.google.common.hash.Funnel;
 import com.google.common.hash.Funnels;
 import com.google.common.hash.PrimitiveSink;
 import com.google.common.util.concurrent.Futures;
+import examples.UuidSink;
 import examples.Video;
 import examples.VideoDao;
+import examples.datastax.DataStaxVideoDao;
+import examples.datastax.ScanCheckpoint;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.util.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Class responsible for building and tracking {@link BloomFilter}s for {@link Video}s.
+ *
+ * Between full builds, ids of saved videos are added to the current filter (and to the filter being
+ * built, if any) by {@link #put(UUID)}, so the filter stays current. Each insertion raises the
+ * filter's false positive probability a little beyond the configured one once the data set outgrows
+ * the rough dataset size; full builds reclaim that accuracy and drop ids of deleted videos.
  */
 public class VideoBloomFilterManager implements Managed {
 
+  /**
+   * Number of times a failed scan is resumed before the build is abandoned.
+   */
+  static final int MAXIMUM_SCAN_ATTEMPTS = 3;
+  /**
+   * The funnel of video id filters, see {@link VideoIdFunnel}.
+   */
+  static final Funnel<CharSequence> VIDEO_ID_FUNNEL = VideoIdFunnel.INSTANCE;
   private final Logger logger = LoggerFactory.getLogger(VideoBloomFilterManager.class);
   private final VideoDao videoDao;
+  private final DataStaxVideoDao checkpointedVideoDao;
   private final Duration updateFrequency;
   private int expectedInsertions;
   private double falsePositiveProbability;
-  private BloomFilter<String> videoIdFilter;
+  private volatile BloomFilter<CharSequence> videoIdFilter;
   private volatile Instant last = Instant.now();
+  private volatile BloomFilter<CharSequence> building;
+  private final AtomicLong incrementalInserts = new AtomicLong();
   private ExecutorService executorService = Executors.newSingleThreadExecutor();
   private final Timer timer;
   private Future<?> running = Futures.immediateFuture(null);
+  private final Path checkpointDirectory;
+  private final java.time.Duration checkpointInterval;
 
   /**
    *
@@ -44,33 +75,81 @@ public class VideoBloomFilterManager implements Managed {
    * @param falsePositiveProbability
    */
   public VideoBloomFilterManager(VideoDao videoDao, Duration updateFrequency, int roughDatasetSize, double falsePositiveProbability, MetricRegistry metrics) {
+    this(videoDao, null, updateFrequency, roughDatasetSize, falsePositiveProbability, metrics, null, null);
+  }
+
+  /**
+   *
+   * @param videoDao
+   * @param updateFrequency
+   * @param roughDatasetSize
+   * @param falsePositiveProbability
+   * @param metrics
+   * @param checkpointDirectory where scan checkpoints and the partially built filter are kept, or null to disable checkpoints
+   * @param checkpointInterval how often to checkpoint the scan (ignored if checkpointDirectory is null)
+   */
+  public VideoBloomFilterManager(DataStaxVideoDao videoDao, Duration updateFrequency, int roughDatasetSize, double falsePositiveProbability, MetricRegistry metrics,
+    Path checkpointDirectory, Duration checkpointInterval) {
+    this(videoDao, videoDao, updateFrequency, roughDatasetSize, falsePositiveProbability, metrics, checkpointDirectory, checkpointInterval);
+  }
+
+  /**
+   * Only {@link DataStaxVideoDao} scans can be checkpointed.
+   */
+  private VideoBloomFilterManager(VideoDao videoDao, DataStaxVideoDao checkpointedVideoDao, Duration updateFrequency, int roughDatasetSize,
+    double falsePositiveProbability, MetricRegistry metrics, Path checkpointDirectory, Duration checkpointInterval) {
     this.videoDao = videoDao;
+    this.checkpointedVideoDao = checkpointedVideoDao;
     this.updateFrequency = updateFrequency;
     this.expectedInsertions = roughDatasetSize;
     this.falsePositiveProbability = falsePositiveProbability;
     this.timer = metrics.timer("buildVideoIdBloomFilter");
+    metrics.register("videoIdBloomFilterIncrementalInserts", (Gauge<Long>) this::getIncrementalInserts);
+    this.checkpointDirectory = checkpointDirectory;
+    this.checkpointInterval = checkpointInterval == null ? null : java.time.Duration.ofMillis(checkpointInterval.toMilliseconds());
   }
 
   /**
    * Construct a {@link BloomFilter} containing every {@link Video#getVideoId()} value.
+   *
+   * If checkpoints are enabled, a failed scan is resumed (up to {@link #MAXIMUM_SCAN_ATTEMPTS} times)
+   * along with the partially built filter, including after a restart.
    */
   void build() {
     running = executorService.submit(() -> {
       logger.info("building new bloomfilter");
       final Timer.Context context = timer.time();
       try {
-        BloomFilter<String> newFilter = BloomFilter.create(
-          Funnels.stringFunnel(Charsets.UTF_8),
-          expectedInsertions,
-          falsePositiveProbability);
-
-        videoDao.onEvery(v -> {
-          newFilter.put(v.getVideoId().toString());
-        });
+        BloomFilter<CharSequence> newFilter = resumeOrCreateFilter();
+        // saves from now on are put into the new filter too, in case the scan misses them
+        building = newFilter;
+        ScanCheckpoint checkpoint = checkpoint(newFilter);
+        for (int attempt = 1; ; attempt++) {
+          try {
+            scan(newFilter, checkpoint);
+            break;
+          } catch (RuntimeException e) {
+            if (checkpoint == null || attempt >= MAXIMUM_SCAN_ATTEMPTS) {
+              throw e;
+            }
+            logger.warn("bloomfilter scan attempt {} failed, resuming from checkpoint", attempt, e);
+          }
+        }
         last = Instant.now();
 
-        this.videoIdFilter = newFilter;
+        // puts into the new filter that completed before it is published are visible to its readers
+        synchronized (newFilter) {
+          this.videoIdFilter = newFilter;
+        }
+        incrementalInserts.getAndSet(0);
+        if (checkpointDirectory != null) {
+          Files.deleteIfExists(partialFilterFile());
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.error("failed to build new bloomfilter", e);
       } finally {
+        // cleared after the new filter is published, see put
+        building = null;
         context.stop();
         logger.info("new bloomfilter complete as of {}", last);
       }
@@ -78,13 +157,153 @@ public class VideoBloomFilterManager implements Managed {
   }
 
   /**
+   * Add every video id to the filter.
+   *
+   * @param filter the filter to populate
+   * @param checkpoint where to record progress, or null
+   */
+  private void scan(BloomFilter<CharSequence> filter, ScanCheckpoint checkpoint) {
+    UuidCharSequence videoId = new UuidCharSequence();
+    UuidSink put = (mostSignificantBits, leastSignificantBits) -> {
+      // BloomFilter#put is not thread safe, and onEveryVideoId may scan in parallel
+      synchronized (filter) {
+        filter.put(videoId.set(mostSignificantBits, leastSignificantBits));
+      }
+    };
+    if (checkpoint == null) {
+      videoDao.onEveryVideoId(put);
+    } else {
+      checkpointedVideoDao.onEveryVideoId(put, checkpoint);
+    }
+  }
+
+  /**
+   *
+   * @param filter the filter being built
+   * @return a checkpoint that persists the filter along with the scan position, or null if checkpoints are disabled
+   */
+  private ScanCheckpoint checkpoint(BloomFilter<CharSequence> filter) {
+    if (checkpointDirectory == null) {
+      return null;
+    }
+    return new ScanCheckpoint(checkpointFile(), checkpointInterval)
+      .setBeforeWrite(() -> writePartialFilter(filter));
+  }
+
+  /**
+   *
+   * @return the partially built filter left by an interrupted scan, or a new empty filter
+   * @throws IOException if the checkpoint directory can't be created
+   */
+  private BloomFilter<CharSequence> resumeOrCreateFilter() throws IOException {
+    if (checkpointDirectory != null) {
+      Files.createDirectories(checkpointDirectory);
+      if (Files.exists(checkpointFile())) {
+        if (Files.exists(partialFilterFile())) {
+          try (InputStream in = Files.newInputStream(partialFilterFile())) {
+            logger.info("resuming bloomfilter from {}", partialFilterFile());
+            return BloomFilter.readFrom(in, VIDEO_ID_FUNNEL);
+          } catch (IOException e) {
+            logger.warn("failed to read partial bloomfilter, starting over", e);
+          }
+        }
+        // the scan position is useless without the filter it corresponds to
+        Files.deleteIfExists(checkpointFile());
+      }
+    }
+    return BloomFilter.create(
+      VIDEO_ID_FUNNEL,
+      expectedInsertions,
+      falsePositiveProbability);
+  }
+
+  /**
+   * Atomically replace the partial filter file with the current state of the filter being built.
+   *
+   * @param filter the filter being built
+   */
+  private void writePartialFilter(BloomFilter<CharSequence> filter) {
+    Path temp = partialFilterFile().resolveSibling(partialFilterFile().getFileName() + ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        synchronized (filter) {
+          filter.writeTo(out);
+        }
+      }
+      Files.move(temp, partialFilterFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to write partial bloomfilter " + partialFilterFile(), e);
+    }
+  }
+
+  private Path checkpointFile() {
+    return checkpointDirectory.resolve("videoIdBloomFilter.checkpoint");
+  }
+
+  private Path partialFilterFile() {
+    return checkpointDirectory.resolve("videoIdBloomFilter.partial");
+  }
+
+  /**
+   * Add a saved video's id to the current filter, and to the filter being built if a build is
+   * running. Safe to call from any thread.
+   *
+   * @param videoId the {@link Video#getVideoId()} of a saved video
+   */
+  public void put(UUID videoId) {
+    UuidCharSequence id = new UuidCharSequence().set(videoId.getMostSignificantBits(), videoId.getLeastSignificantBits());
+    // read before the current filter: a build clears it only after publishing the filter it built
+    BloomFilter<CharSequence> next = building;
+    BloomFilter<CharSequence> current = videoIdFilter;
+    if (current != null) {
+      synchronized (current) {
+        current.put(id);
+      }
+    }
+    if (next != null && next != current) {
+      synchronized (next) {
+        next.put(id);
+      }
+    }
+    // also publishes the insertion to readers, see getVideoIdFilter
+    incrementalInserts.incrementAndGet();
+  }
+
+  /**
+   *
+   * @return the number of ids added by {@link #put(UUID)} since the current filter was built
+   */
+  public long getIncrementalInserts() {
+    return incrementalInserts.get();
+  }
+
+  /**
+   * The filter may be read concurrently with {@link #put(UUID)}, but must be copied (or written)
+   * while synchronized on it, see {@link #copyVideoIdFilter()}.
    *
    * @return the current {@link BloomFilter}, or null if it hasn't been initialized yet
    */
-  public BloomFilter<String> getVideoIdFilter() {
+  public BloomFilter<CharSequence> getVideoIdFilter() {
+    // makes the bits set by every put that completed before this call visible to the caller
+    incrementalInserts.get();
     return this.videoIdFilter;
   }
 
+  /**
+   *
+   * @return a copy of the current {@link BloomFilter} that isn't modified by {@link #put(UUID)}, or null
+   * if it hasn't been initialized yet
+   */
+  public BloomFilter<CharSequence> copyVideoIdFilter() {
+    BloomFilter<CharSequence> filter = getVideoIdFilter();
+    if (filter == null) {
+      return null;
+    }
+    synchronized (filter) {
+      return filter.copy();
+    }
+  }
+
   /**
    * @return the time when the bloom filter was last updated, or null if hasn't run yet
    */
@@ -126,4 +345,28 @@ public class VideoBloomFilterManager implements Managed {
   public void stop() throws Exception {
     this.executorService.shutdownNow();
   }
+
+  /**
+   * Hashes exactly like {@link Funnels#stringFunnel(java.nio.charset.Charset)} with UTF-8 (so filters
+   * remain compatible with clients), but ASCII sequences such as {@link UuidCharSequence} are fed to
+   * the hasher a byte at a time rather than copied into a new String and byte array. An enum, like
+   * Guava's own funnels, so it serializes as a singleton.
+   */
+  private enum VideoIdFunnel implements Funnel<CharSequence> {
+    INSTANCE;
+
+    @Override
+    public void funnel(CharSequence from, PrimitiveSink into) {
+      for (int i = 0; i < from.length(); i++) {
+        if (from.charAt(i) > 0x7f) {
+          into.putString(from, Charsets.UTF_8);
+          return;
+        }
+      }
+      for (int i = 0; i < from.length(); i++) {
+        // an ASCII char is its own UTF-8 encoding
+        into.putByte((byte) from.charAt(i));
+      }
+    }
+  }
 }
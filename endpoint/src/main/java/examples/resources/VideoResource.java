@@ -6,6 +6,8 @@ import com.google.common.hash.BloomFilter;
 import examples.Video;
 import examples.VideoApi;
 import examples.VideoDao;
+import examples.VideoPage;
+import io.dropwizard.jersey.PATCH;
 import io.dropwizard.jersey.errors.ErrorMessage;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -13,11 +15,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
 import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -33,6 +38,15 @@ import javax.ws.rs.core.StreamingOutput;
 @Singleton
 public class VideoResource implements VideoApi {
 
+  /**
+   * Videos per page of {@link #getByUser(String, String, Integer)} and {@link #getLatest(String, Integer)}
+   * when no limit is requested.
+   */
+  static final int DEFAULT_PAGE_SIZE = 20;
+  /**
+   * The largest limit the paginated methods accept.
+   */
+  static final int MAXIMUM_PAGE_SIZE = 1000;
   private final VideoDao videoDao;
   private final VideoBloomFilterManager bloomFilterManager;
   public VideoResource(VideoDao videoDao, VideoBloomFilterManager bloomFilterManager) {
@@ -48,6 +62,22 @@ public class VideoResource implements VideoApi {
     return videoDao.retrieve(UUID.fromString(videoId));
   }
 
+  @Override
+  @ApiOperation("Get a page of a user's videos, most recently added first")
+  @GET @Path("by-user/{userId}")
+  @Timed
+  public VideoPage getByUser(@PathParam("userId") String userId, @QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit) {
+    return videoDao.retrieveByUser(UUID.fromString(userId), cursor, pageSize(limit));
+  }
+
+  @Override
+  @ApiOperation("Get a page of the most recently added videos")
+  @GET @Path("latest")
+  @Timed
+  public VideoPage getLatest(@QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit) {
+    return videoDao.retrieveLatest(cursor, pageSize(limit));
+  }
+
   @Override
   @ApiOperation("Create a new video")
   @Timed
@@ -62,6 +92,44 @@ public class VideoResource implements VideoApi {
     return videoDao.save(video);
   }
 
+  /**
+   * Unlike {@link #update(Video)}, only the fields present in the request are written, so a partial
+   * update doesn't need the rest of the video.
+   *
+   * @param videoId the target {@link Video#getVideoId()}
+   * @param video the fields to change
+   * @return the patched video
+   * @throws IllegalArgumentException if the request has no body
+   */
+  @ApiOperation("Update only the fields present in the request")
+  @PATCH @Path("{videoId}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Timed
+  public Video patch(@PathParam("videoId") String videoId, Video video) {
+    if (video == null) {
+      throw new IllegalArgumentException("the fields to patch are required");
+    }
+    Video patched = videoDao.patch(video.setVideoId(UUID.fromString(videoId)));
+    if (patched == null) {
+      throw new NotFoundException("no video with videoId " + videoId);
+    }
+    return patched;
+  }
+
+  /**
+   *
+   * @param limit the requested page size, or null
+   * @return the page size
+   * @throws IllegalArgumentException if the limit is out of range
+   */
+  private int pageSize(Integer limit) {
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAXIMUM_PAGE_SIZE) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAXIMUM_PAGE_SIZE + ", was " + limit);
+    }
+    return pageSize;
+  }
+
   /**
    * Returns a Bloom Filter of known {@link Video#getVideoId()}s.
    *
@@ -72,7 +140,8 @@ public class VideoResource implements VideoApi {
   @ApiOperation("Get a Bloom Filter of video IDs")
   @Timed
   public Response getBloomFilter() {
-    BloomFilter<String> filter = bloomFilterManager.getVideoIdFilter();
+    // a copy, since saves add to the current filter while it's written out
+    BloomFilter<CharSequence> filter = bloomFilterManager.copyVideoIdFilter();
     if(filter != null) {
       return Response.ok(new StreamingOutput() {
         @Override
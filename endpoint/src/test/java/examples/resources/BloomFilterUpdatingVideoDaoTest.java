@@ -0,0 +1,63 @@
+package examples.resources;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import examples.Video;
+import examples.VideoDao;
+import io.dropwizard.util.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BloomFilterUpdatingVideoDao}.
+ */
+public class BloomFilterUpdatingVideoDaoTest {
+
+  private final VideoDao delegate = mock(VideoDao.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final VideoBloomFilterManager manager = new VideoBloomFilterManager(delegate, Duration.hours(1L), 100, 0.0001, metrics);
+
+  /**
+   * Build the filter from an empty table.
+   */
+  @Before
+  public void start() throws Exception {
+    manager.start();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (manager.getVideoIdFilter() == null && System.nanoTime() < deadline) {
+      Thread.sleep(10L);
+    }
+    assertNotNull(manager.getVideoIdFilter());
+  }
+
+  @After
+  public void stop() throws Exception {
+    manager.stop();
+  }
+
+  /**
+   * Given: a built filter, and a bloom filter gate in front of the dao
+   * When: save a new video through a {@link BloomFilterUpdatingVideoDao}
+   * Then: the next lookup of its id passes the gate, without waiting for the next build
+   */
+  @Test
+  public void save_passesGate() {
+    Video video = new Video().setVideoId(UUID.randomUUID()).setTitle("saved");
+    when(delegate.save(video)).thenReturn(video);
+    when(delegate.retrieve(video.getVideoId())).thenReturn(video);
+    VideoDao gate = new BloomFilteredVideoDao(delegate, manager, metrics, "bloomFilter");
+    assertNull(gate.retrieve(video.getVideoId()));
+
+    new BloomFilterUpdatingVideoDao(delegate, manager).save(video);
+
+    assertSame(video, gate.retrieve(video.getVideoId()));
+  }
+}
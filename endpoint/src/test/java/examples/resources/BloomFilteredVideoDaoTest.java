@@ -0,0 +1,94 @@
+package examples.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.BloomFilter;
+import examples.Video;
+import examples.VideoDao;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BloomFilteredVideoDao}.
+ */
+public class BloomFilteredVideoDaoTest {
+
+  private final VideoDao delegate = mock(VideoDao.class);
+  private final VideoBloomFilterManager manager = mock(VideoBloomFilterManager.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final BloomFilteredVideoDao dao = new BloomFilteredVideoDao(delegate, manager, metrics, "bloomFilter");
+  private final Video a = new Video().setVideoId(UUID.randomUUID()).setTitle("a");
+
+  /**
+   *
+   * @param videoIds the ids to put into the filter
+   * @return a filter containing the ids
+   */
+  private static BloomFilter<CharSequence> filter(UUID... videoIds) {
+    BloomFilter<CharSequence> filter = BloomFilter.create(VideoBloomFilterManager.VIDEO_ID_FUNNEL, 100, 0.0001);
+    for (UUID videoId : videoIds) {
+      filter.put(videoId.toString());
+    }
+    return filter;
+  }
+
+  /**
+   * Given: no filter built yet
+   * When: retrieve()
+   * Then: the lookup is passed to the delegate
+   */
+  @Test
+  public void retrieve_noFilter() {
+    when(delegate.retrieve(a.getVideoId())).thenReturn(a);
+
+    assertSame(a, dao.retrieve(a.getVideoId()));
+    assertEquals(1L, metrics.meter("bloomFilter.passed").getCount());
+  }
+
+  /**
+   * Given: a filter containing one video
+   * When: retrieve() that video, and an id that isn't in the filter
+   * Then: only the video in the filter is looked up, and the other lookup is counted as skipped
+   */
+  @Test
+  public void retrieve_skipsAbsent() {
+    UUID absent = UUID.randomUUID();
+    when(manager.getVideoIdFilter()).thenReturn(filter(a.getVideoId()));
+    when(delegate.retrieve(a.getVideoId())).thenReturn(a);
+
+    assertSame(a, dao.retrieve(a.getVideoId()));
+    assertNull(dao.retrieve(absent));
+
+    verify(delegate, never()).retrieve(absent);
+    assertEquals(1L, metrics.meter("bloomFilter.skipped").getCount());
+    assertEquals(1L, metrics.meter("bloomFilter.passed").getCount());
+  }
+
+  /**
+   * Given: a filter containing two videos, one of which isn't stored
+   * When: retrieveAll() with both, and an id that isn't in the filter
+   * Then: only the ids in the filter are passed to the delegate, and the missing video counts as a false positive
+   */
+  @Test
+  public void retrieveAll_falsePositives() {
+    UUID deleted = UUID.randomUUID();
+    UUID absent = UUID.randomUUID();
+    when(manager.getVideoIdFilter()).thenReturn(filter(a.getVideoId(), deleted));
+    when(delegate.retrieveAll(ImmutableList.of(a.getVideoId(), deleted))).thenReturn(ImmutableMap.of(a.getVideoId(), a));
+
+    Map<UUID, Video> videos = dao.retrieveAll(ImmutableList.of(a.getVideoId(), absent, deleted));
+
+    assertEquals(ImmutableMap.of(a.getVideoId(), a), videos);
+    assertEquals(1L, metrics.meter("bloomFilter.falsePositives").getCount());
+  }
+}
@@ -0,0 +1,64 @@
+package examples.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import examples.Video;
+import examples.VideoDao;
+import java.util.UUID;
+import javax.ws.rs.NotFoundException;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link VideoResource}.
+ */
+public class VideoResourceTest {
+
+  private final VideoDao videoDao = mock(VideoDao.class);
+  private final VideoResource resource = new VideoResource(videoDao, mock(VideoBloomFilterManager.class));
+
+  /**
+   * Given: a stored video
+   * When: patch() its title
+   * Then: the patch is passed to the dao with the video id of the path, and the patched video is returned
+   */
+  @Test
+  public void patch_setsVideoId() {
+    UUID videoId = UUID.randomUUID();
+    Video patch = new Video().setTitle("patched");
+    Video patched = new Video().setVideoId(videoId).setTitle("patched");
+    when(videoDao.patch(patch)).thenReturn(patched);
+
+    assertSame(patched, resource.patch(videoId.toString(), patch));
+    assertEquals(videoId, patch.getVideoId());
+  }
+
+  /**
+   * Given: an empty request body
+   * When: patch()
+   * Then: IllegalArgumentException (a 400), without calling the dao
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void patch_noBody() {
+    try {
+      resource.patch(UUID.randomUUID().toString(), null);
+    } finally {
+      verify(videoDao, never()).patch(any(Video.class));
+    }
+  }
+
+  /**
+   * Given: no video with the id
+   * When: patch()
+   * Then: NotFoundException (a 404)
+   */
+  @Test(expected = NotFoundException.class)
+  public void patch_notFound() {
+    resource.patch(UUID.randomUUID().toString(), new Video().setTitle("patched"));
+  }
+}
@@ -6,6 +6,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -23,6 +24,23 @@ public interface VideoApi {
   @GET @Path("{videoId}")
   Video get(@PathParam("videoId") String videoId);
 
+  /**
+   * @param userId target {@link Video#getUserId()}
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, or null for the server's default
+   * @return a page of the user's videos, most recently added first
+   */
+  @GET @Path("by-user/{userId}")
+  VideoPage getByUser(@PathParam("userId") String userId, @QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit);
+
+  /**
+   * @param cursor {@link VideoPage#getNext()} of the previous page, or null for the first page
+   * @param limit the maximum number of videos in the page, or null for the server's default
+   * @return a page of the most recently added videos, most recent first
+   */
+  @GET @Path("latest")
+  VideoPage getLatest(@QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit);
+
   /**
    * @param video the video to create
    * @return status response
@@ -0,0 +1,34 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a list of {@link Video}s too long to return at once.
+ */
+public class VideoPage {
+
+  private List<Video> videos = new ArrayList<>();
+  private String next;
+
+  public List<Video> getVideos() {
+    return videos;
+  }
+
+  public VideoPage setVideos(List<Video> videos) {
+    this.videos = videos;
+    return this;
+  }
+
+  /**
+   * @return an opaque cursor for the following page, or null if this is the last page
+   */
+  public String getNext() {
+    return next;
+  }
+
+  public VideoPage setNext(String next) {
+    this.next = next;
+    return this;
+  }
+}